@@ -0,0 +1,50 @@
+package core;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Runs every benchmark in this folder with the GC profiler attached, so the report has
+ * gc.alloc.rate.norm (bytes allocated per op) next to ops/s.
+ *
+ * Pass a regex as the first argument to only run matching benchmarks, e.g. "WorldGen".
+ * Benchmarks scoring under their target in TARGETS are listed at the end, and the run exits with 1.
+ *
+ * pom.xml in this folder builds it with src and runs it, from proj3:
+ * mvn -f benchmarks/pom.xml compile exec:exec -Dbenchmarks=WorldGen
+ */
+public class BenchmarkRunner {
+    //  The least throughput each benchmark should score, in its own units
+    static final Map<String, Double> TARGETS = Map.of(
+            "core.WorldGenBenchmarks.newWorld", 2000.0);
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "core\\..*Benchmarks")
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        int missed = 0;
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            Result<?> score = result.getPrimaryResult();
+            Double target = TARGETS.get(benchmark);
+            if (target != null && score.getScore() < target) {
+                System.err.printf("MISSED TARGET: %s scored %.1f %s, the target is %.1f%n",
+                        benchmark, score.getScore(), score.getScoreUnit(), target);
+                missed++;
+            }
+        }
+        if (missed > 0) {
+            System.exit(1);
+        }
+    }
+}
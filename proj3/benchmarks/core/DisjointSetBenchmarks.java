@@ -0,0 +1,115 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DisjointSet against the recursive version it replaced (kept below as RecursiveDisjointSet), on the
+ * same random unions. After the unions, every element's component size is looked up, the way
+ * fixHallway() scans the rooms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DisjointSetBenchmarks {
+    private static final int SIZE = 1 << 20;
+    // a bit under SIZE unions, leaving a few hundred thousand components of all sizes
+    private static final int UNION_NUM = SIZE * 3 / 4;
+
+    int[] ns;
+    int[] ms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(61);
+        ns = random.ints(UNION_NUM, 0, SIZE).toArray();
+        ms = random.ints(UNION_NUM, 0, SIZE).toArray();
+    }
+
+    @Benchmark
+    public long iterative() {
+        DisjointSet set = new DisjointSet(SIZE);
+        set.connectAll(ns, ms);
+        long sizes = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sizes += set.componentSize(i);
+        }
+        return sizes;
+    }
+
+    @Benchmark
+    public long recursive() {
+        RecursiveDisjointSet set = new RecursiveDisjointSet(SIZE);
+        for (int i = 0; i < UNION_NUM; i++) {
+            set.connect(ns[i], ms[i]);
+        }
+        long sizes = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sizes += set.componentSize(i);
+        }
+        return sizes;
+    }
+
+    @Benchmark
+    public int[][] components() {
+        DisjointSet set = new DisjointSet(SIZE);
+        set.connectAll(ns, ms);
+        return set.components();
+    }
+
+    //  DisjointSet as it was, finding roots recursively with full path compression
+    static class RecursiveDisjointSet {
+        private final int[] parent;
+
+        RecursiveDisjointSet(int size) {
+            parent = new int[size];
+            for (int i = 0; i < size; i++) {
+                parent[i] = -1;
+            }
+        }
+
+        private int root(int n) {
+            if (parent[n] < 0) {
+                return n;
+            } else {
+                int root = root(parent[n]);
+                parent[n] = root;
+                return root;
+            }
+        }
+
+        int componentSize(int n) {
+            return -parent[root(n)];
+        }
+
+        void connect(int n, int m) {
+            int rootN = root(n),
+                rootM = root(m);
+            if (rootN == rootM) {
+                return;
+            }
+            if (parent[rootN] < parent[rootM]) {
+                parent[rootN] += parent[rootM];
+                parent[rootM] = rootN;
+            } else {
+                parent[rootM] += parent[rootN];
+                parent[rootN] = rootM;
+            }
+        }
+    }
+}
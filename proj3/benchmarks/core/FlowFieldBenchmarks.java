@@ -0,0 +1,254 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FlowField, which searches again every time the player moves, against a field repaired for each
+ * step instead (kept below as RepairingFlowField), following the same walk about a generated world.
+ *
+ * The board is a grid, so a step of the target changes the distance of every cell the field reaches
+ * by exactly one, and a repair has to rewrite the whole field all the same. With the chase radius the
+ * game uses that's a few hundred cells at most.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FlowFieldBenchmarks {
+    static final int WALK_STEPS = 4096;
+    //  World.CHASE_RADIUS
+    static final int RADIUS = 12;
+
+    FlowField field;
+    RepairingFlowField repairing;
+    int[] walkX;
+    int[] walkY;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        World world = new World(SeedCorpus.TRICKY_SEEDS[0]);
+        CellBoard board = world.getCellBoard();
+        field = new FlowField(board, RADIUS);
+        repairing = new RepairingFlowField(board, RADIUS);
+        walkX = new int[WALK_STEPS];
+        walkY = new int[WALK_STEPS];
+        Random random = new Random(15);
+        int x = world.getEntities().getX(0),
+            y = world.getEntities().getY(0);
+        for (int k = 0; k < WALK_STEPS; k++) {
+            int step = random.nextInt(4);
+            //  a step into a wall is picked again, so every step moves the target
+            while (board.get(x + EntityStore.STEP_DX[step], y + EntityStore.STEP_DY[step]) <= CellBoard.BOUNDARY) {
+                step = random.nextInt(4);
+            }
+            x += EntityStore.STEP_DX[step];
+            y += EntityStore.STEP_DY[step];
+            walkX[k] = x;
+            walkY[k] = y;
+            //  both have to give the same field for the comparison to mean anything
+            field.update(x, y);
+            repairing.update(x, y);
+            for (int cy = 0; cy < board.getHeight(); cy++) {
+                for (int cx = 0; cx < board.getWidth(); cx++) {
+                    if (field.distance(cx, cy) != repairing.distance(cx, cy)) {
+                        throw new IllegalStateException("Repaired field differs at (" + cx + ", " + cy + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public FlowField searchEveryStep() {
+        next = (next + 1) % WALK_STEPS;
+        field.update(walkX[next], walkY[next]);
+        return field;
+    }
+
+    @Benchmark
+    public RepairingFlowField repairEveryStep() {
+        next = (next + 1) % WALK_STEPS;
+        repairing.update(walkX[next], walkY[next]);
+        return repairing;
+    }
+
+    /*  FlowField repaired when the target takes a single step. A cell gets one step closer if a shortest
+        path to it from the old target runs through the new one, and one step farther otherwise. The
+        closer cells are found by walking out from the new target along steps that add one to the old
+        distance, then one pass over the reached cells adjusts all of them, dropping those that end up
+        past the radius and taking in the ones just past it that a closer cell brings within it.
+    */
+    static class RepairingFlowField {
+        private final CellBoard board;
+        private final int width;
+        private final int height;
+        private final int radius;
+        private final int[] dist;
+        private final int[] stamp;
+        // the reached cells, the queue of the search that found them, then kept up by each repair
+        private final int[] reached;
+        private int reachedNum;
+        // the cells a step brings closer are those with closer[i] == stepNum, walked through in walk
+        private final int[] closer;
+        private final int[] walk;
+        private int searchNum = 0;
+        private int stepNum = 0;
+        private int targetX = -1;
+        private int targetY = -1;
+
+        RepairingFlowField(CellBoard board, int radius) {
+            this.board = board;
+            width = board.getWidth();
+            height = board.getHeight();
+            this.radius = radius;
+            dist = new int[width * height];
+            stamp = new int[width * height];
+            closer = new int[width * height];
+            int maxReached = (int) Math.min((long) width * height, 2L * radius * (radius + 1) + 1);
+            reached = new int[maxReached];
+            walk = new int[maxReached];
+        }
+
+        void update(int x, int y) {
+            if (x == targetX && y == targetY) {
+                return;
+            }
+            if (Math.abs(x - targetX) + Math.abs(y - targetY) == 1 && distance(x, y) == 1) {
+                repair(x, y);
+                return;
+            }
+            targetX = x;
+            targetY = y;
+            searchNum++;
+            byte[] cells = board.getCells();
+            int head = 0,
+                tail = 0,
+                start = y * width + x;
+            dist[start] = 0;
+            stamp[start] = searchNum;
+            reached[tail++] = start;
+            while (head < tail) {
+                int cell = reached[head++],
+                    d = dist[cell] + 1;
+                if (d > radius) {
+                    continue;
+                }
+                int cx = cell % width,
+                    cy = cell / width;
+                if (cy + 1 < height) {
+                    tail = visit(cells, cell + width, d, tail);
+                }
+                if (cx > 0) {
+                    tail = visit(cells, cell - 1, d, tail);
+                }
+                if (cy > 0) {
+                    tail = visit(cells, cell - width, d, tail);
+                }
+                if (cx + 1 < width) {
+                    tail = visit(cells, cell + 1, d, tail);
+                }
+            }
+            reachedNum = tail;
+        }
+
+        private void repair(int x, int y) {
+            targetX = x;
+            targetY = y;
+            stepNum++;
+            byte[] cells = board.getCells();
+            int head = 0,
+                tail = 0,
+                start = y * width + x;
+            closer[start] = stepNum;
+            walk[tail++] = start;
+            while (head < tail) {
+                int cell = walk[head++];
+                //  a cell coming within the radius, nothing past it can
+                if (stamp[cell] != searchNum) {
+                    continue;
+                }
+                int d = dist[cell] + 1,
+                    cx = cell % width,
+                    cy = cell / width;
+                if (cy + 1 < height) {
+                    tail = walkOn(cells, cell + width, d, tail);
+                }
+                if (cx > 0) {
+                    tail = walkOn(cells, cell - 1, d, tail);
+                }
+                if (cy > 0) {
+                    tail = walkOn(cells, cell - width, d, tail);
+                }
+                if (cx + 1 < width) {
+                    tail = walkOn(cells, cell + 1, d, tail);
+                }
+            }
+
+            int kept = 0;
+            for (int i = 0; i < reachedNum; i++) {
+                int cell = reached[i];
+                if (closer[cell] == stepNum) {
+                    dist[cell]--;
+                    reached[kept++] = cell;
+                } else if (dist[cell] < radius) {
+                    dist[cell]++;
+                    reached[kept++] = cell;
+                } else {
+                    stamp[cell] = searchNum - 1;
+                }
+            }
+            for (int i = 0; i < tail; i++) {
+                int cell = walk[i];
+                if (stamp[cell] != searchNum) {
+                    dist[cell] = radius;
+                    stamp[cell] = searchNum;
+                    reached[kept++] = cell;
+                }
+            }
+            reachedNum = kept;
+        }
+
+        private int visit(byte[] cells, int cell, int d, int tail) {
+            if (stamp[cell] != searchNum && cells[cell] > CellBoard.BOUNDARY) {
+                stamp[cell] = searchNum;
+                dist[cell] = d;
+                reached[tail++] = cell;
+            }
+            return tail;
+        }
+
+        //  On to a neighbour one step farther along, or to a walkable one just past the radius
+        private int walkOn(byte[] cells, int cell, int d, int tail) {
+            if (closer[cell] != stepNum && (stamp[cell] == searchNum ? dist[cell] == d
+                    : d > radius && cells[cell] > CellBoard.BOUNDARY)) {
+                closer[cell] = stepNum;
+                walk[tail++] = cell;
+            }
+            return tail;
+        }
+
+        int distance(int x, int y) {
+            if (targetX < 0) {
+                return FlowField.UNREACHED;
+            }
+            int cell = y * width + x;
+            return stamp[cell] == searchNum ? dist[cell] : FlowField.UNREACHED;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking recorded games with ReplayVerifier, scored in replays per minute. The target is 3000.
+ * The logs are recorded once into a temporary directory, one game of up to GAME_TICKS ticks for
+ * each seed of the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplayBenchmarks {
+    static final int GAME_TICKS = 3000;
+    static final int REPLAY_NUM = 64;
+
+    @State(Scope.Benchmark)
+    public static class RecordedGames {
+        String[] files;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            Path dir = Files.createTempDirectory("replays");
+            // deleted in reverse order, so the logs go before their directory
+            dir.toFile().deleteOnExit();
+            long[] seeds = SeedCorpus.seeds();
+            Random random = new Random(19);
+            files = new String[REPLAY_NUM];
+            for (int i = 0; i < files.length; i++) {
+                files[i] = dir.resolve(i + ".replay").toString();
+                new File(files[i]).deleteOnExit();
+                World world = new World(seeds[i % seeds.length]);
+                world.recordReplay(files[i]);
+                for (int tick = 0; tick < GAME_TICKS && !world.isGameOver(); tick++) {
+                    world.step(random.nextInt(3) == 0 ? "wasd".charAt(random.nextInt(4)) : World.NO_INPUT);
+                }
+                world.endReplay();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPLAY_NUM)
+    public ReplayLog.Result[] verifyReplays(RecordedGames games) {
+        return new ReplayVerifier().verify(games.files);
+    }
+}
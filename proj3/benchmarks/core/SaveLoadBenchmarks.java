@@ -0,0 +1,201 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tileengine.TETile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Saving, loading and the autograder entry point. Whole-world binary snapshots (what a compacted
+ * journal builds on) are compared with the journal the game saves to. Every file is written to a
+ * temporary SaveDirectory, never to the game's own save.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveLoadBenchmarks {
+    static final String SNAPSHOT_FILE = "save.bin";
+    static final String TEXT_FILE = "save.txt";
+
+    @State(Scope.Benchmark)
+    public static class SaveDirectory {
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("saves");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+
+        String file(String filename) {
+            return dir.resolve(filename).toString();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class GeneratedWorlds {
+        World[] worlds;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            long[] seeds = SeedCorpus.seeds();
+            worlds = new World[seeds.length];
+            for (int i = 0; i < seeds.length; i++) {
+                worlds[i] = new World(seeds[i]);
+            }
+        }
+
+        World nextWorld() {
+            next = (next + 1) % worlds.length;
+            return worlds[next];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SavedWorld {
+        String file;
+
+        @Setup(Level.Trial)
+        public void setUp(SaveDirectory directory) {
+            file = directory.file(SNAPSHOT_FILE);
+            new World(SeedCorpus.TRICKY_SEEDS[0]).writeSnapshot(file);
+        }
+    }
+
+    //  The load target is under 1 ms for a board this size
+    @State(Scope.Thread)
+    public static class SavedLargeWorld {
+        String file;
+
+        @Setup(Level.Trial)
+        public void setUp(SaveDirectory directory) {
+            file = directory.file(SNAPSHOT_FILE);
+            new World(1000, 1000, SeedCorpus.TRICKY_SEEDS[0]).writeSnapshot(file);
+        }
+    }
+
+    //  A 1000x1000 world with the player stepping back and forth between saves, each save being a
+    //  journal commit, or a whole snapshot if journal is false
+    @State(Scope.Thread)
+    public static class LargeWorld {
+        @Param({"false", "true"})
+        boolean journal;
+        World world;
+        int step;
+        SaveDirectory directory;
+
+        @Setup(Level.Trial)
+        public void setUp(SaveDirectory saveDirectory) {
+            directory = saveDirectory;
+            world = new World(1000, 1000, SeedCorpus.TRICKY_SEEDS[0]);
+        }
+
+        void step() {
+            world.handleInput((step++ & 1) == 0 ? 'w' : 's');
+        }
+
+        void save() {
+            if (journal) {
+                world.saveGame(directory.dir.toString());
+            } else {
+                world.writeSnapshot(directory.file(SNAPSHOT_FILE));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TextSavedWorld {
+        String file;
+
+        @Setup(Level.Trial)
+        public void setUp(SaveDirectory directory) {
+            file = directory.file(TEXT_FILE);
+            new World(SeedCorpus.TRICKY_SEEDS[0]).exportTextSave(file);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Inputs {
+        String[] inputs;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            long[] seeds = SeedCorpus.seeds();
+            inputs = new String[seeds.length];
+            for (int i = 0; i < seeds.length; i++) {
+                // unsigned, since the input only takes digits; getWorldFromInput() reads it back into the same long
+                inputs[i] = "n" + Long.toUnsignedString(seeds[i]) + "swasdwasddddwdwwaassdsaw";
+            }
+        }
+
+        String nextInput() {
+            next = (next + 1) % inputs.length;
+            return inputs[next];
+        }
+    }
+
+    @Benchmark
+    public World saveGame(GeneratedWorlds generated, SaveDirectory directory) {
+        World world = generated.nextWorld();
+        world.writeSnapshot(directory.file(SNAPSHOT_FILE));
+        return world;
+    }
+
+    @Benchmark
+    public World loadGame(SavedWorld saved) {
+        return new World(saved.file);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public World saveLargeGame(LargeWorld large) {
+        large.step();
+        large.save();
+        return large.world;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public World loadLargeGame(SavedLargeWorld saved) {
+        return new World(saved.file);
+    }
+
+    @Benchmark
+    public World loadTextGame(TextSavedWorld saved) {
+        return new World(saved.file);
+    }
+
+    @Benchmark
+    public TETile[][] getWorldFromInput(Inputs inputs, SaveDirectory directory) {
+        return AutograderBuddy.getWorldFromInput(inputs.nextInput(), directory.dir.toString());
+    }
+}
@@ -0,0 +1,25 @@
+package core;
+
+import java.util.Random;
+
+/**
+ * Fixed seeds every benchmark cycles through, so numbers from two runs are comparable.
+ * Starts with the seeds WorldGenTests knows to be tricky, then pads with seeds from a fixed Random.
+ */
+public class SeedCorpus {
+    public static final long[] TRICKY_SEEDS = new long[]{-2131569457823262528L, 2027739922450493747L,
+        6761467943615784159L, -7595179269152698292L, -4380091093697992216L, 4127133868420372896L,
+        8934313649586369459L, 5561269833210924221L, -2384379811550839861L, 1838870606100659888L,
+        6764725693684033236L};
+    private static final int SIZE = 64;
+
+    public static long[] seeds() {
+        long[] seeds = new long[SIZE];
+        System.arraycopy(TRICKY_SEEDS, 0, seeds, 0, TRICKY_SEEDS.length);
+        Random rdm = new Random(61);
+        for (int i = TRICKY_SEEDS.length; i < SIZE; i++) {
+            seeds[i] = rdm.nextLong();
+        }
+        return seeds;
+    }
+}
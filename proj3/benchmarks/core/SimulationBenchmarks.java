@@ -0,0 +1,154 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole games played headless through World.step(), one seed of the corpus per game.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmarks {
+    //  About a minute and a half of play at World.TICK_MILLIS per tick
+    static final int TICKS_PER_GAME = 2000;
+
+    @State(Scope.Thread)
+    public static class Games {
+        long[] seeds;
+        char[] inputs;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            seeds = SeedCorpus.seeds();
+            inputs = new char[TICKS_PER_GAME];
+            Random random = new Random(61);
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = "wasd".charAt(random.nextInt(4));
+            }
+        }
+
+        long nextSeed() {
+            next = (next + 1) % seeds.length;
+            return seeds[next];
+        }
+    }
+
+    //  A few hundred ticks of a large world, where per-tick costs that grow with the number of avatars
+    //  show up. A fresh world for every run, so it's never measuring a game that's already over.
+    static final int LARGE_WORLD_TICKS = 200;
+
+    @State(Scope.Thread)
+    public static class LargeWorld {
+        long[] seeds;
+        int next;
+        World world;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            seeds = SeedCorpus.seeds();
+        }
+
+        @Setup(Level.Invocation)
+        public void newWorld() {
+            next = (next + 1) % seeds.length;
+            world = new World(400, 400, seeds[next]);
+        }
+    }
+
+    //  Far more enemies than any generated world has, so the cost of a single random move shows.
+    //  Every enemy moves on the same tick, so at 60 ticks/s a tick has 1/60 s to move all of them.
+    static final int CROWD_SIZE = 500_000;
+
+    @State(Scope.Thread)
+    public static class Crowd {
+        //  1 moves them one by one, more spreads them over a StripedMover; 0 is one thread per core
+        @Param({"1", "2", "4", "0"})
+        int threads;
+
+        ForkJoinPool pool;
+        EntityStore enemies;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            World world = new World(1500, 1500, SeedCorpus.TRICKY_SEEDS[0]);
+            FreeCellIndex floor = new FreeCellIndex(world.getCellBoard(), CellBoard.INTERIOR);
+            Random random = new Random(61);
+            enemies = new EntityStore(world, CROWD_SIZE);
+            for (int i = 0; i < CROWD_SIZE; i++) {
+                enemies.spawn(2, CellBoard.ENEMY, floor, random);
+            }
+            new CollisionGrid(1500, 1500, enemies);
+            pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            enemies.setPool(threads == 1 ? null : pool);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    //  Scored in moves per second
+    @Benchmark
+    @OperationsPerInvocation(CROWD_SIZE)
+    public EntityStore moveCrowd(Crowd crowd) {
+        crowd.enemies.randomMove(0, CROWD_SIZE);
+        return crowd.enemies;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public World.Outcome stepLargeWorld(LargeWorld large) {
+        World.Outcome outcome = World.Outcome.ONGOING;
+        for (int i = 0; i < LARGE_WORLD_TICKS && outcome == World.Outcome.ONGOING; i++) {
+            outcome = large.world.step(World.NO_INPUT);
+        }
+        return outcome;
+    }
+
+    //  Scored in ticks per second, playing one game after another on the same inputs. A million ticks
+    //  (almost 14 hours of play) should take at most 10 s, so the target is 100000.
+    @Benchmark
+    @OperationsPerInvocation(TICKS_PER_GAME)
+    public int tickHeadless(Games games) {
+        int ticks = 0;
+        while (ticks < TICKS_PER_GAME) {
+            World world = new World(games.nextSeed());
+            while (ticks < TICKS_PER_GAME && world.step(games.inputs[ticks]) == World.Outcome.ONGOING) {
+                ticks++;
+            }
+        }
+        return ticks;
+    }
+
+    @Benchmark
+    public World.Outcome playGame(Games games) {
+        World world = new World(games.nextSeed());
+        World.Outcome outcome = World.Outcome.ONGOING;
+        for (int i = 0; i < games.inputs.length && outcome == World.Outcome.ONGOING; i++) {
+            outcome = world.step(games.inputs[i]);
+        }
+        return outcome;
+    }
+}
@@ -0,0 +1,58 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worlds per second out of WorldBatch for a growing number of threads. Divide by the thread count
+ * to see how close to linear it scales; 0 threads means one per available core.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorldBatchBenchmarks {
+    private static final int BATCH_SIZE = 1024;
+
+    @Param({"1", "2", "4", "0"})
+    int threads;
+
+    ForkJoinPool pool;
+    WorldBatch batch;
+    long[] seeds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        batch = new WorldBatch(pool);
+        seeds = new Random(61).longs(BATCH_SIZE).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    // one op is a whole batch, so ops/s * BATCH_SIZE is worlds/s
+    @Benchmark
+    public World[] generateBatch() {
+        return batch.generate(seeds);
+    }
+}
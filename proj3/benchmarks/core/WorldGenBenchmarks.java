@@ -0,0 +1,105 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tileengine.TETile;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * World generation, one phase at a time. Every invocation moves on to the next seed of the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldGenBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Corpus {
+        long[] seeds;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            seeds = SeedCorpus.seeds();
+        }
+
+        long nextSeed() {
+            next = (next + 1) % seeds.length;
+            return seeds[next];
+        }
+    }
+
+    /*  A generator builds one board only, so generateBoard() and fixHallway() get a fresh one
+        (already drafted, for fixHallway()) before every call. That is not part of the measurement.
+    */
+    @State(Scope.Thread)
+    public static class FreshGenerator {
+        WorldGenerator generator;
+        WorldGenerator drafted;
+
+        @Setup(Level.Invocation)
+        public void setUp(Corpus corpus) {
+            long seed = corpus.nextSeed();
+            generator = new WorldGenerator(new Random(seed));
+            drafted = new WorldGenerator(new Random(seed));
+            drafted.draftBoard();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class GeneratedWorlds {
+        World[] worlds;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            long[] seeds = SeedCorpus.seeds();
+            worlds = new World[seeds.length];
+            for (int i = 0; i < seeds.length; i++) {
+                worlds[i] = new World(seeds[i]);
+            }
+        }
+
+        World nextWorld() {
+            next = (next + 1) % worlds.length;
+            return worlds[next];
+        }
+    }
+
+    //  Single-threaded, so this is worlds per second per core. The target is 2000, see BenchmarkRunner.TARGETS.
+    @Benchmark
+    public World newWorld(Corpus corpus) {
+        return new World(corpus.nextSeed());
+    }
+
+    @Benchmark
+    public CellBoard generateBoard(FreshGenerator fresh) {
+        return fresh.generator.generateBoard();
+    }
+
+    @Benchmark
+    public WorldGenerator fixHallway(FreshGenerator fresh) {
+        fresh.drafted.fixHallway();
+        return fresh.drafted;
+    }
+
+    //  What getBoard() pays the first time it's called on a world, e.g. by the autograder
+    @Benchmark
+    public TETile[][] materializeTiles(GeneratedWorlds generated) {
+        World world = generated.nextWorld();
+        return world.getCellBoard().materialize(world.getTilePalette());
+    }
+}
@@ -17,15 +17,17 @@ public class AutograderBuddy {
      * the TETile[][]. Do not call System.exit(0) in this method.
      *
      * @param input the input string to feed to your program
-     * @return the 2D TETile[][] representing the state of the world
+     * @param saveDirectory the directory "L" loads the save from and ":q" saves to
+     * @return the 2D TETile[][] representing the state of the world, or null if the input quits
+     *         before any world is made
      */
-    public static TETile[][] getWorldFromInput(String input) {
+    public static TETile[][] getWorldFromInput(String input, String saveDirectory) {
         input = input.toUpperCase();
         int i = 0,
             inputLength = input.length();
         World worldFromInput = null;
         if (input.charAt(i) == 'L') {
-            worldFromInput = new World(World.SAVE_FILE);
+            worldFromInput = World.loadSavedGame(saveDirectory, null);
         } else if (input.charAt(i) == 'N') {
             StringBuilder seedBuilder = new StringBuilder();
             for (char charAtI = input.charAt(++i); '0' <= charAtI && charAtI <= '9'; charAtI = input.charAt(++i)) {
@@ -37,24 +39,29 @@ public class AutograderBuddy {
             long seed = new BigInteger(seedBuilder.toString()).longValue();
             worldFromInput = new World(seed);
         } else if (input.charAt(i) == 'Q') {
-            System.exit(0);
+            return null;
         } else {
             throw new IllegalArgumentException("Input should start with N, L or Q (uppercase or lowercase).");
         }
         for (i++; i < inputLength; i++) {
             if (input.charAt(i) == ':') {
                 if (String.valueOf(input.charAt(i + 1)).equalsIgnoreCase("Q")) {
-                    worldFromInput.saveGame();
+                    worldFromInput.saveGame(saveDirectory);
                     return worldFromInput.getBoard();
                 } else {
                     throw new IllegalArgumentException("Any colon in the input must be followed by a 'Q' or 'q'.");
                 }
             }
-            worldFromInput.handleKeyInput(String.valueOf(input.charAt(i)));
+            worldFromInput.handleInput(input.charAt(i));
         }
         return worldFromInput.getBoard();
     }
 
+    //  Same as getWorldFromInput(input, saveDirectory), keeping the save in the working directory
+    public static TETile[][] getWorldFromInput(String input) {
+        return getWorldFromInput(input, World.SAVE_DIRECTORY);
+    }
+
 
 
 
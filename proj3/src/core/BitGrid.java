@@ -0,0 +1,120 @@
+package core;
+
+/**
+ * A width * height grid of bits, packed row by row into longs. Rectangles are filled and tested a
+ * whole word (64 tiles of a row) at a time instead of tile by tile.
+ *
+ * Rectangles are half-open, [fromX, toX) * [fromY, toY), and are not bounds-checked.
+ */
+public class BitGrid {
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    public BitGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        words = new long[wordsPerRow * height];
+    }
+
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    public void fill(int fromX, int fromY, int toX, int toY) {
+        if (fromX >= toX) {
+            return;
+        }
+        int fromWord = fromX >>> 6,
+            toWord = (toX - 1) >>> 6;
+        long fromMask = -1L << fromX,
+             toMask = -1L >>> -toX;
+        for (int y = fromY; y < toY; y++) {
+            int row = y * wordsPerRow;
+            if (fromWord == toWord) {
+                words[row + fromWord] |= fromMask & toMask;
+                continue;
+            }
+            words[row + fromWord] |= fromMask;
+            for (int w = fromWord + 1; w < toWord; w++) {
+                words[row + w] = -1L;
+            }
+            words[row + toWord] |= toMask;
+        }
+    }
+
+    public boolean anySet(int fromX, int fromY, int toX, int toY) {
+        if (fromX >= toX) {
+            return false;
+        }
+        int fromWord = fromX >>> 6,
+            toWord = (toX - 1) >>> 6;
+        long fromMask = -1L << fromX,
+             toMask = -1L >>> -toX;
+        for (int y = fromY; y < toY; y++) {
+            int row = y * wordsPerRow;
+            if (fromWord == toWord) {
+                if ((words[row + fromWord] & fromMask & toMask) != 0) {
+                    return true;
+                }
+                continue;
+            }
+            if ((words[row + fromWord] & fromMask) != 0 || (words[row + toWord] & toMask) != 0) {
+                return true;
+            }
+            for (int w = fromWord + 1; w < toWord; w++) {
+                if (words[row + w] != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean allSet(int fromX, int fromY, int toX, int toY) {
+        if (fromX >= toX) {
+            return true;
+        }
+        int fromWord = fromX >>> 6,
+            toWord = (toX - 1) >>> 6;
+        long fromMask = -1L << fromX,
+             toMask = -1L >>> -toX;
+        for (int y = fromY; y < toY; y++) {
+            int row = y * wordsPerRow;
+            if (fromWord == toWord) {
+                long mask = fromMask & toMask;
+                if ((words[row + fromWord] & mask) != mask) {
+                    return false;
+                }
+                continue;
+            }
+            if ((words[row + fromWord] & fromMask) != fromMask || (words[row + toWord] & toMask) != toMask) {
+                return false;
+            }
+            for (int w = fromWord + 1; w < toWord; w++) {
+                if (words[row + w] != -1L) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
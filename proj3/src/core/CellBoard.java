@@ -0,0 +1,163 @@
+package core;
+
+import tileengine.TETile;
+
+import java.util.Arrays;
+
+/**
+ * The state of every tile of a world, one byte per tile in a flat row-major array.
+ *
+ * A cell holds one of the status codes below. A TETile[][] copy is only built when something
+ * asks for one (rendering, the autograder), and is kept in step with the cells from then on.
+ */
+public class CellBoard {
+    /*  Cell status being:
+        0 : Nothing is here, it's the ambient space.
+        1 : Boundary of the map.
+        2 : Interior of the map, where entities can stay.
+        3 : Player is here.
+        4 : There's an enemy here.
+        5 : There's a food here.
+    */
+    public static final byte NOTHING = 0;
+    public static final byte BOUNDARY = 1;
+    public static final byte INTERIOR = 2;
+    public static final byte PLAYER = 3;
+    public static final byte ENEMY = 4;
+    public static final byte FOOD = 5;
+    public static final int STATUS_NUM = 6;
+
+    private final int width;
+    private final int height;
+    private final byte[] cells;
+
+    private TETile[] palette;
+    private TETile[][] tiles;
+
+    //  Only kept after trackChanges(): which cells changed, and their indices in the order they first did.
+    //  set() may be called for cells of different rows from different threads, so adding to changes is locked.
+    private BitGrid changedCells;
+    private int[] changes;
+    private int changeNum;
+
+    public CellBoard(int width, int height) {
+        this.width = width;
+        this.height = height;
+        cells = new byte[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte get(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    public void set(int x, int y, byte status) {
+        cells[y * width + x] = status;
+        if (tiles != null) {
+            tiles[x][y] = palette[status];
+        }
+        if (changedCells != null) {
+            recordChange(x, y);
+        }
+    }
+
+    //  Fills [fromX, toX) * [fromY, toY) with status
+    public void fill(int fromX, int fromY, int toX, int toY, byte status) {
+        for (int y = fromY; y < toY; y++) {
+            int row = y * width;
+            for (int x = fromX; x < toX; x++) {
+                cells[row + x] = status;
+            }
+        }
+        if (tiles != null) {
+            for (int x = fromX; x < toX; x++) {
+                for (int y = fromY; y < toY; y++) {
+                    tiles[x][y] = palette[status];
+                }
+            }
+        }
+        if (changedCells != null) {
+            for (int y = fromY; y < toY; y++) {
+                for (int x = fromX; x < toX; x++) {
+                    recordChange(x, y);
+                }
+            }
+        }
+    }
+
+    //  From now on, remember which cells set() and fill() touch. Forgets anything remembered so far.
+    public void trackChanges() {
+        changedCells = new BitGrid(width, height);
+        changes = new int[16];
+        changeNum = 0;
+    }
+
+    /*  Indices (y * width + x) of the cells touched since trackChanges() or the last call, each once and
+        in ascending order, whether or not they ended up back at their old status. Empty if changes aren't
+        tracked.
+    */
+    public int[] takeChanges() {
+        int[] taken = Arrays.copyOf(changes == null ? new int[0] : changes, changeNum);
+        Arrays.sort(taken);
+        for (int index : taken) {
+            changedCells.clear(index % width, index / width);
+        }
+        changeNum = 0;
+        return taken;
+    }
+
+    private void recordChange(int x, int y) {
+        if (changedCells.get(x, y)) {
+            return;
+        }
+        changedCells.set(x, y);
+        addChange(y * width + x);
+    }
+
+    private synchronized void addChange(int index) {
+        if (changeNum == changes.length) {
+            changes = Arrays.copyOf(changes, changeNum * 2);
+        }
+        changes[changeNum++] = index;
+    }
+
+    //  The cells themselves, row by row from y = 0. Writing to it skips the TETile[][] view.
+    public byte[] getCells() {
+        return cells;
+    }
+
+    /*  A TETile[][] (tiles[x][y]) of the board, palette[status] being the tile drawn for each status.
+        Built on the first call and updated by set() and fill() afterwards, so later calls are free.
+    */
+    public TETile[][] toTiles(TETile[] tilePalette) {
+        if (tiles == null || palette != tilePalette) {
+            palette = tilePalette;
+            tiles = materialize(tilePalette);
+        }
+        return tiles;
+    }
+
+    //  A fresh TETile[][] of the board, not kept in step with it
+    public TETile[][] materialize(TETile[] tilePalette) {
+        return materialize(tilePalette, 0, 0, width, height);
+    }
+
+    //  Same for the regionWidth x regionHeight cells from (fromX, fromY), result[0][0] being (fromX, fromY)
+    public TETile[][] materialize(TETile[] tilePalette, int fromX, int fromY, int regionWidth, int regionHeight) {
+        TETile[][] result = new TETile[regionWidth][regionHeight];
+        for (int y = 0; y < regionHeight; y++) {
+            int row = (fromY + y) * width + fromX;
+            for (int x = 0; x < regionWidth; x++) {
+                result[x][y] = tilePalette[cells[row + x]];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,316 @@
+package core;
+
+import edu.princeton.cs.algs4.StdDraw;
+import tileengine.TERenderer;
+import tileengine.TETile;
+import tileengine.Tileset;
+import utils.FileUtils;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A world with no edges, made of CHUNK_SIZE x CHUNK_SIZE chunks that are generated as the player
+ * gets near them. Each chunk is a rooms-and-hallways board of its own, built by a WorldGenerator from
+ * a hash of (seed, chunkX, chunkY), so it comes out the same every time it's generated.
+ *
+ * Two chunks side by side share a doorway on their common edge, placed by a hash of the edge. Each
+ * chunk digs a hallway from its doorways to its nearest floor, so every chunk connects to all four
+ * of its neighbours without either one having to look at the other.
+ *
+ * At most maxLoadedChunks chunks are kept in memory, the least recently used going first. A chunk
+ * that was changed is written to the spill directory when it goes and read back from there when it's
+ * needed again; one that wasn't is just dropped and generated again. Memory stays the same however
+ * far the player goes.
+ */
+public class ChunkedWorld {
+    public static final int CHUNK_SIZE = 48;
+    // doorways stay this far from the corners of a chunk
+    private static final int DOOR_MARGIN = 4;
+    private static final int VERTICAL_EDGE = 0;
+    private static final int HORIZONTAL_EDGE = 1;
+    private static final long DOOR_SALT = 0x444F4F52L;
+    // chunks up to this many chunks away from the player's are kept loaded
+    private static final int LOAD_RADIUS = 1;
+    public static final int DEFAULT_MAX_LOADED_CHUNKS = 36;
+    private static final int VIEW_WIDTH = 80;
+    private static final int VIEW_HEIGHT = 45;
+
+    private final long seed;
+    private final String spillDir;
+    private final int maxLoadedChunks;
+    private final Map<Long, Chunk> loaded;
+    private final TETile[] palette;
+    private long playerX;
+    private long playerY;
+    private int generatedNum = 0;
+
+    private static class Chunk {
+        final int chunkX;
+        final int chunkY;
+        final CellBoard board;
+        // changed since it was generated or read back, so it has to be written out rather than dropped
+        boolean modified = false;
+
+        Chunk(int chunkX, int chunkY, CellBoard board) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+            this.board = board;
+        }
+    }
+
+    public ChunkedWorld(long seed, int maxLoadedChunks, String spillDir) {
+        int neededChunks = (2 * LOAD_RADIUS + 1) * (2 * LOAD_RADIUS + 1);
+        if (maxLoadedChunks < neededChunks) {
+            throw new IllegalArgumentException("At least " + neededChunks + " chunks have to fit in memory.");
+        }
+        this.seed = seed;
+        this.maxLoadedChunks = maxLoadedChunks;
+        this.spillDir = spillDir;
+        loaded = new LinkedHashMap<>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= ChunkedWorld.this.maxLoadedChunks) {
+                    return false;
+                }
+                evict(eldest.getValue());
+                return true;
+            }
+        };
+        palette = new TETile[CellBoard.STATUS_NUM];
+        palette[CellBoard.NOTHING] = Tileset.NOTHING;
+        palette[CellBoard.BOUNDARY] = Tileset.WALL;
+        palette[CellBoard.INTERIOR] = Tileset.FLOOR;
+        palette[CellBoard.PLAYER] = Tileset.PLAYER;
+        palette[CellBoard.ENEMY] = Tileset.ENEMY;
+        palette[CellBoard.FOOD] = Tileset.FOOD;
+
+        //  the player starts on the first floor cell of chunk (0, 0)
+        byte[] origin = chunk(0, 0).board.getCells();
+        int start = 0;
+        while (origin[start] != CellBoard.INTERIOR) {
+            start++;
+        }
+        playerX = start % CHUNK_SIZE;
+        playerY = start / CHUNK_SIZE;
+        loadAroundPlayer();
+    }
+
+    public ChunkedWorld(long seed) {
+        this(seed, DEFAULT_MAX_LOADED_CHUNKS, "chunks/" + seed);
+    }
+
+    public byte get(long x, long y) {
+        return chunkAt(x, y).board.get(Math.floorMod(x, CHUNK_SIZE), Math.floorMod(y, CHUNK_SIZE));
+    }
+
+    public void set(long x, long y, byte status) {
+        Chunk chunk = chunkAt(x, y);
+        chunk.board.set(Math.floorMod(x, CHUNK_SIZE), Math.floorMod(y, CHUNK_SIZE), status);
+        chunk.modified = true;
+    }
+
+    //  Moves the player by one key, 'w', 'a', 's' or 'd', if there's floor there
+    public boolean tryMove(char inputKeyDirection) {
+        long x = playerX,
+             y = playerY;
+        switch (Character.toUpperCase(inputKeyDirection)) {
+            case 'W' -> y++;
+            case 'S' -> y--;
+            case 'D' -> x++;
+            case 'A' -> x--;
+            default -> {
+                return false;
+            }
+        }
+        if (get(x, y) <= CellBoard.BOUNDARY) {
+            return false;
+        }
+        playerX = x;
+        playerY = y;
+        loadAroundPlayer();
+        return true;
+    }
+
+    public long getPlayerX() {
+        return playerX;
+    }
+
+    public long getPlayerY() {
+        return playerY;
+    }
+
+    public int getLoadedChunkNum() {
+        return loaded.size();
+    }
+
+    //  How many times a chunk was generated, counting the ones generated again after being dropped
+    public int getGeneratedNum() {
+        return generatedNum;
+    }
+
+    //  The width * height tiles from (fromX, fromY), as tiles[x][y], with the player drawn in
+    public TETile[][] view(long fromX, long fromY, int width, int height) {
+        TETile[][] tiles = new TETile[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                tiles[x][y] = palette[get(fromX + x, fromY + y)];
+            }
+        }
+        if (playerX >= fromX && playerX < fromX + width && playerY >= fromY && playerY < fromY + height) {
+            tiles[(int) (playerX - fromX)][(int) (playerY - fromY)] = palette[CellBoard.PLAYER];
+        }
+        return tiles;
+    }
+
+    //  Walks the world on screen with the player in the middle, until ':' 'Q'
+    public void runGame() {
+        TERenderer ter = new TERenderer();
+        ter.initialize(VIEW_WIDTH, VIEW_HEIGHT);
+        ter.renderFrame(view(playerX - VIEW_WIDTH / 2, playerY - VIEW_HEIGHT / 2, VIEW_WIDTH, VIEW_HEIGHT));
+        boolean awaitingQuitKey = false;
+        while (true) {
+            if (!StdDraw.hasNextKeyTyped()) {
+                LockSupport.parkNanos(World.TICK_MILLIS * 1_000_000L);
+                continue;
+            }
+            char key = StdDraw.nextKeyTyped();
+            if (awaitingQuitKey) {
+                awaitingQuitKey = false;
+                if (Character.toUpperCase(key) == 'Q') {
+                    System.exit(0);
+                }
+            } else if (key == ':') {
+                awaitingQuitKey = true;
+            } else if (tryMove(key)) {
+                ter.renderFrame(view(playerX - VIEW_WIDTH / 2, playerY - VIEW_HEIGHT / 2, VIEW_WIDTH, VIEW_HEIGHT));
+            }
+        }
+    }
+
+    private void loadAroundPlayer() {
+        int chunkX = (int) Math.floorDiv(playerX, CHUNK_SIZE),
+            chunkY = (int) Math.floorDiv(playerY, CHUNK_SIZE);
+        for (int dx = -LOAD_RADIUS; dx <= LOAD_RADIUS; dx++) {
+            for (int dy = -LOAD_RADIUS; dy <= LOAD_RADIUS; dy++) {
+                chunk(chunkX + dx, chunkY + dy);
+            }
+        }
+    }
+
+    private Chunk chunkAt(long x, long y) {
+        return chunk((int) Math.floorDiv(x, CHUNK_SIZE), (int) Math.floorDiv(y, CHUNK_SIZE));
+    }
+
+    private Chunk chunk(int chunkX, int chunkY) {
+        long key = (long) chunkX << 32 | (chunkY & 0xFFFFFFFFL);
+        Chunk chunk = loaded.get(key);
+        if (chunk == null) {
+            String spillFile = spillFileOf(chunkX, chunkY);
+            CellBoard board;
+            if (FileUtils.fileExists(spillFile)) {
+                board = new CellBoard(CHUNK_SIZE, CHUNK_SIZE);
+                FileUtils.mapFile(spillFile).get(board.getCells());
+            } else {
+                board = generateChunk(chunkX, chunkY);
+            }
+            chunk = new Chunk(chunkX, chunkY, board);
+            loaded.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    private void evict(Chunk chunk) {
+        if (chunk.modified) {
+            FileUtils.makeDirectories(spillDir);
+            FileUtils.writeFile(spillFileOf(chunk.chunkX, chunk.chunkY), ByteBuffer.wrap(chunk.board.getCells()));
+        }
+    }
+
+    private String spillFileOf(int chunkX, int chunkY) {
+        return spillDir + "/" + chunkX + "_" + chunkY + ".chunk";
+    }
+
+    protected CellBoard generateChunk(int chunkX, int chunkY) {
+        generatedNum++;
+        CellBoard board = null;
+        for (int attempt = 0; board == null; attempt++) {
+            try {
+                board = new WorldGenerator(CHUNK_SIZE, CHUNK_SIZE, new Random(hash(seed, chunkX, chunkY, attempt)))
+                        .generateBoard();
+            } catch (IllegalStateException e) {
+                // The generator gave up on this layout. The next attempt's seed is just as fixed, so the
+                // chunk still only depends on (seed, chunkX, chunkY).
+            }
+        }
+        digDoorway(board, 0, doorOffset(chunkX - 1, chunkY, VERTICAL_EDGE), 1, 0);
+        digDoorway(board, CHUNK_SIZE - 1, doorOffset(chunkX, chunkY, VERTICAL_EDGE), -1, 0);
+        digDoorway(board, doorOffset(chunkX, chunkY - 1, HORIZONTAL_EDGE), 0, 0, 1);
+        digDoorway(board, doorOffset(chunkX, chunkY, HORIZONTAL_EDGE), CHUNK_SIZE - 1, 0, -1);
+        return board;
+    }
+
+    //  Where along the edge to the right of (VERTICAL_EDGE) or above (HORIZONTAL_EDGE) the chunk its doorway is
+    private int doorOffset(int chunkX, int chunkY, int edge) {
+        return DOOR_MARGIN + Math.floorMod(hash(seed ^ DOOR_SALT, chunkX, chunkY, edge), CHUNK_SIZE - 2 * DOOR_MARGIN);
+    }
+
+    /*  Opens the edge cell (x, y) and digs a hallway from it to the nearest floor of the chunk: first
+        inwards along (dx, dy), then across. Every cell on the way is closer to the door than that
+        floor, so the hallway only goes through walls and empty space until it gets there.
+    */
+    private static void digDoorway(CellBoard board, int x, int y, int dx, int dy) {
+        int targetX = CHUNK_SIZE / 2,
+            targetY = CHUNK_SIZE / 2,
+            nearest = Integer.MAX_VALUE;
+        byte[] cells = board.getCells();
+        for (int i = 0; i < cells.length; i++) {
+            int distance = Math.abs(i % CHUNK_SIZE - x) + Math.abs(i / CHUNK_SIZE - y);
+            if (cells[i] == CellBoard.INTERIOR && distance < nearest) {
+                nearest = distance;
+                targetX = i % CHUNK_SIZE;
+                targetY = i / CHUNK_SIZE;
+            }
+        }
+        dig(board, x, y);
+        while ((dx != 0 && x != targetX) || (dy != 0 && y != targetY)) {
+            x += dx;
+            y += dy;
+            dig(board, x, y);
+        }
+        int stepX = Integer.signum(targetX - x),
+            stepY = Integer.signum(targetY - y);
+        while (x != targetX || y != targetY) {
+            x += stepX;
+            y += stepY;
+            dig(board, x, y);
+        }
+    }
+
+    //  Makes (x, y) floor and walls in the empty space around it
+    private static void dig(CellBoard board, int x, int y) {
+        board.set(x, y, CellBoard.INTERIOR);
+        for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, CHUNK_SIZE - 1); nx++) {
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, CHUNK_SIZE - 1); ny++) {
+                if (board.get(nx, ny) == CellBoard.NOTHING) {
+                    board.set(nx, ny, CellBoard.BOUNDARY);
+                }
+            }
+        }
+    }
+
+    //  SplitMix64 over the seed and each value in turn
+    private static long hash(long seed, long a, long b, long c) {
+        return mix(mix(mix(seed ^ a) ^ b) ^ c);
+    }
+
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
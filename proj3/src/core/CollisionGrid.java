@@ -0,0 +1,156 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Which avatars stand on which cell, so collisions only have to be looked for where two or more of
+ * them share a cell, instead of checking every pair of avatars every tick.
+ *
+ * Avatars are numbered as in the world's EntityStore (player, enemies, foods). Each cell keeps a
+ * doubly linked list of the avatars on it, threaded through nextInCell and prevInCell, in no
+ * particular order, so filing an avatar costs the same however crowded its cell is. sortedOn() puts
+ * a cell's avatars in ascending number, the order a plain scan over the avatars would visit them.
+ *
+ * A cell becomes contested when a move makes it shared by avatars of different types, and stays
+ * contested until prune() finds no two live ones of different types left on it. Avatars of the same
+ * type never affect each other, so a crowd of enemies on one cell costs nothing per tick. Dead
+ * avatars stay filed where they died until then. A cell that isn't contested holds a single type,
+ * so whether a move makes it contested only takes a look at the first avatar already there.
+ */
+public class CollisionGrid {
+    private static final int NONE = -1;
+
+    private final int width;
+    private final EntityStore avatars;
+    // cellHead[y * width + x] is the first avatar of the cell's list
+    private final int[] cellHead;
+    private final int[] nextInCell;
+    private final int[] prevInCell;
+    // cellOf[avatar] is the cell it's filed under, NONE once it's been removed
+    private final int[] cellOf;
+
+    private final BitGrid contestedCells;
+    private int[] contested = new int[16];
+    private int contestedNum = 0;
+
+    //  Files every avatar of the store, and has the store report their moves here from now on
+    public CollisionGrid(int width, int height, EntityStore avatars) {
+        this.width = width;
+        this.avatars = avatars;
+        cellHead = new int[width * height];
+        Arrays.fill(cellHead, NONE);
+        nextInCell = new int[avatars.size()];
+        prevInCell = new int[avatars.size()];
+        cellOf = new int[avatars.size()];
+        Arrays.fill(cellOf, NONE);
+        contestedCells = new BitGrid(width, height);
+        for (int i = 0; i < avatars.size(); i++) {
+            if (!avatars.isDead(i)) {
+                insert(i, avatars.getY(i) * width + avatars.getX(i));
+            }
+        }
+        avatars.setCollisionGrid(this);
+    }
+
+    //  Files the avatar under the cell it's on now, wherever it was filed before
+    public void moved(int avatar) {
+        remove(avatar);
+        if (!avatars.isDead(avatar)) {
+            insert(avatar, avatars.getY(avatar) * width + avatars.getX(avatar));
+        }
+    }
+
+    public void remove(int avatar) {
+        int cell = cellOf[avatar];
+        if (cell == NONE) {
+            return;
+        }
+        int prev = prevInCell[avatar],
+            next = nextInCell[avatar];
+        if (prev == NONE) {
+            cellHead[cell] = next;
+        } else {
+            nextInCell[prev] = next;
+        }
+        if (next != NONE) {
+            prevInCell[next] = prev;
+        }
+        cellOf[avatar] = NONE;
+    }
+
+    public int contestedNum() {
+        return contestedNum;
+    }
+
+    //  The i-th contested cell, as y * width + x
+    public int contestedCell(int i) {
+        return contested[i];
+    }
+
+    //  Writes the avatars on the cell into the front of into, lowest number first, and returns how many
+    public int sortedOn(int cell, int[] into) {
+        int num = 0;
+        for (int avatar = cellHead[cell]; avatar != NONE; avatar = nextInCell[avatar]) {
+            into[num++] = avatar;
+        }
+        Arrays.sort(into, 0, num);
+        return num;
+    }
+
+    //  Drops dead avatars from the contested cells, then the cells where nothing can collide anymore
+    public void prune() {
+        int kept = 0;
+        for (int i = 0; i < contestedNum; i++) {
+            int cell = contested[i];
+            for (int avatar = cellHead[cell]; avatar != NONE; ) {
+                int next = nextInCell[avatar];
+                if (avatars.isDead(avatar)) {
+                    remove(avatar);
+                }
+                avatar = next;
+            }
+            if (cellHead[cell] != NONE && mixed(cellHead[cell], avatars.getType(cellHead[cell]))) {
+                contested[kept++] = cell;
+            } else {
+                contestedCells.clear(cell % width, cell / width);
+            }
+        }
+        contestedNum = kept;
+    }
+
+    //  Whether an avatar from first on in its cell's list has a type other than type. Only contested cells need the walk.
+    private boolean mixed(int first, byte type) {
+        for (int avatar = first; avatar != NONE; avatar = nextInCell[avatar]) {
+            if (avatars.getType(avatar) != type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*  Files the avatar under cell, which has to be where it stands. Calls for cells of different rows
+        can run on different threads at once: they only meet in adding to the contested cells.
+    */
+    protected void insert(int avatar, int cell) {
+        int head = cellHead[cell];
+        nextInCell[avatar] = head;
+        prevInCell[avatar] = NONE;
+        if (head != NONE) {
+            prevInCell[head] = avatar;
+        }
+        cellHead[cell] = avatar;
+        cellOf[avatar] = cell;
+        if (head != NONE && avatars.getType(head) != avatars.getType(avatar)
+                && !contestedCells.get(cell % width, cell / width)) {
+            contestedCells.set(cell % width, cell / width);
+            addContested(cell);
+        }
+    }
+
+    private synchronized void addContested(int cell) {
+        if (contestedNum == contested.length) {
+            contested = Arrays.copyOf(contested, contestedNum * 2);
+        }
+        contested[contestedNum++] = cell;
+    }
+}
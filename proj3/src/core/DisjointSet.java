@@ -1,5 +1,12 @@
 package core;
 
+/**
+ * Union-find over 0 to size - 1, union by size. parent[n] is n's parent, or minus the size of its
+ * component if n is a root.
+ *
+ * Finding a root halves the path on the way up (every node visited is pointed at its grandparent),
+ * in a plain loop, so no call is made per step however long the path is.
+ */
 public class DisjointSet {
 
     private int[] parent;
@@ -14,13 +21,14 @@ public class DisjointSet {
     }
 
     private int root(int n) {
-        if (parent[n] < 0) {
-            return n;
-        } else {
-            int root = root(parent[n]);
-            parent[n] = root;
-            return root;
+        while (parent[n] >= 0) {
+            int up = parent[n];
+            if (parent[up] >= 0) {
+                parent[n] = parent[up];
+            }
+            n = parent[n];
         }
+        return n;
     }
 
     public int componentSize(int n) {
@@ -50,4 +58,36 @@ public class DisjointSet {
         }
         connenctedComponentNum--;
     }
+
+    //  connect(ns[i], ms[i]) for every i, in order
+    public void connectAll(int[] ns, int[] ms) {
+        for (int i = 0; i < ns.length; i++) {
+            connect(ns[i], ms[i]);
+        }
+    }
+
+    /*  Every component's members in ascending order, components ordered by their smallest member, in
+        a single pass over the elements.
+    */
+    public int[][] components() {
+        int size = parent.length;
+        // index of each root's component in the result, taken in order of the first member seen
+        int[] componentOf = new int[size];
+        int[][] components = new int[connenctedComponentNum][];
+        int[] filled = new int[connenctedComponentNum];
+        int componentNum = 0;
+        for (int i = 0; i < size; i++) {
+            componentOf[i] = -1;
+        }
+        for (int i = 0; i < size; i++) {
+            int r = root(i);
+            if (componentOf[r] < 0) {
+                componentOf[r] = componentNum;
+                components[componentNum++] = new int[-parent[r]];
+            }
+            int c = componentOf[r];
+            components[c][filled[c]++] = i;
+        }
+        return components;
+    }
 }
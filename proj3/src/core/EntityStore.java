@@ -0,0 +1,347 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Every avatar of a world (the player, enemies and food) as parallel arrays of primitives, one slot
+ * per avatar, so the loops that move them or check them for collisions walk plain arrays instead of
+ * following a reference per avatar.
+ *
+ * Avatars are numbered in the order they were added, which is the numbering World, CollisionGrid
+ * and saves share: the player, then every enemy, then every food. An avatar's type is the CellBoard
+ * status it shows on the cell it stands on (PLAYER, ENEMY or FOOD). Dead avatars keep their slot.
+ *
+ * Moving a range of at least PARALLEL_MIN_AVATARS avatars is handed to a StripedMover, which spreads
+ * it over the store's fork-join pool and ends up exactly where moving them one by one would.
+ */
+public class EntityStore {
+    // Steps a random move can take: up, left, down, right
+    protected static final int[] STEP_DX = {0, -1, 0, 1};
+    protected static final int[] STEP_DY = {1, 0, -1, 0};
+    // an avatar loses at most one health per this long
+    private static final long HURT_COOLDOWN_MILLIS = 667;
+    // moves of fewer avatars than this at once aren't worth splitting between threads
+    private static final int PARALLEL_MIN_AVATARS = 1 << 14;
+
+    private final World world;
+    private final CellBoard board;
+    private final int width;
+    private int size = 0;
+    private int[] x;
+    private int[] y;
+    private int[] health;
+    private int[] fullHealth;
+    private byte[] type;
+    // game time each avatar last lost health, or was added
+    private long[] lastHurtMillis;
+    // bit i of alive[i / 64] is set while avatar i is alive
+    private long[] alive;
+    private CollisionGrid collisions;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private StripedMover mover;
+
+    public EntityStore(World world, int capacity) {
+        this.world = world;
+        board = world.getCellBoard();
+        width = board.getWidth();
+        capacity = Math.max(capacity, 1);
+        x = new int[capacity];
+        y = new int[capacity];
+        health = new int[capacity];
+        fullHealth = new int[capacity];
+        type = new byte[capacity];
+        lastHurtMillis = new long[capacity];
+        alive = new long[(capacity + 63) >>> 6];
+    }
+
+    //  Adds a live avatar at (atX, atY), leaving the board alone, and returns its number
+    public int add(int atX, int atY, int full, int currentHealth, byte entityType) {
+        if (size == x.length) {
+            grow();
+        }
+        int id = size++;
+        x[id] = atX;
+        y[id] = atY;
+        fullHealth[id] = full;
+        health[id] = currentHealth;
+        type[id] = entityType;
+        lastHurtMillis[id] = world.currentMillis();
+        alive[id >>> 6] |= 1L << id;
+        return id;
+    }
+
+    //  Adds an avatar at full health on a free cell taken at random, and shows it on the board
+    public int spawn(int full, byte entityType, FreeCellIndex freeCells, Random random) {
+        int cell = freeCells.takeRandom(random),
+            id = add(cell % width, cell / width, full, full, entityType);
+        board.set(x[id], y[id], entityType);
+        return id;
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        health = Arrays.copyOf(health, capacity);
+        fullHealth = Arrays.copyOf(fullHealth, capacity);
+        type = Arrays.copyOf(type, capacity);
+        lastHurtMillis = Arrays.copyOf(lastHurtMillis, capacity);
+        alive = Arrays.copyOf(alive, (capacity + 63) >>> 6);
+    }
+
+    //  The grid to tell about every move from now on, numbering avatars the same way
+    protected void setCollisionGrid(CollisionGrid grid) {
+        collisions = grid;
+    }
+
+    protected CollisionGrid getCollisionGrid() {
+        return collisions;
+    }
+
+    //  The pool large ranges of avatars are moved on, or null to always move them on this thread
+    public void setPool(ForkJoinPool movePool) {
+        pool = movePool;
+        mover = null;
+    }
+
+    //  A StripedMover for moving num avatars at once, or null if they're better moved one by one
+    private StripedMover moverFor(int num) {
+        if (pool == null || pool.getParallelism() < 2 || num < PARALLEL_MIN_AVATARS) {
+            return null;
+        }
+        if (mover == null) {
+            mover = new StripedMover(world, this, pool);
+        }
+        return mover;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int id) {
+        return x[id];
+    }
+
+    public int getY(int id) {
+        return y[id];
+    }
+
+    public int getHealth(int id) {
+        return health[id];
+    }
+
+    public int getFullHealth(int id) {
+        return fullHealth[id];
+    }
+
+    public byte getType(int id) {
+        return type[id];
+    }
+
+    public boolean isDead(int id) {
+        return (alive[id >>> 6] & 1L << id) == 0;
+    }
+
+    //  Sets where the avatar is, leaving the board and the grid alone
+    protected void place(int id, int atX, int atY) {
+        x[id] = atX;
+        y[id] = atY;
+    }
+
+    protected void kill(int id) {
+        alive[id >>> 6] &= ~(1L << id);
+    }
+
+    //  Puts the avatar back where a save says it was. The board is left alone, it's restored separately.
+    protected void restore(int id, int atX, int atY, int savedHealth) {
+        x[id] = atX;
+        y[id] = atY;
+        health[id] = savedHealth;
+        if (savedHealth <= 0) {
+            kill(id);
+        } else {
+            alive[id >>> 6] |= 1L << id;
+        }
+        if (collisions != null) {
+            collisions.moved(id);
+        }
+    }
+
+    private void moveAndDrawOnBoard(int id, int dx, int dy) {
+        board.set(x[id], y[id], CellBoard.INTERIOR);
+        x[id] += dx;
+        y[id] += dy;
+        board.set(x[id], y[id], type[id]);
+        if (collisions != null) {
+            collisions.moved(id);
+        }
+    }
+
+    //  Moves the avatar one cell by a 'w', 'a', 's' or 'd' key, either case, if it can walk there
+    public boolean tryMove(int id, char inputKeyDirection) {
+        if (isDead(id)) {
+            return false;
+        }
+        int dx = 0,
+            dy = 0;
+        switch (Character.toUpperCase(inputKeyDirection)) {
+            case 'W':
+                dy++;
+                break;
+            case 'S':
+                dy--;
+                break;
+            case 'D':
+                dx++;
+                break;
+            case 'A':
+                dx--;
+                break;
+            default: {
+            }
+        }
+        boolean canMove = board.get(x[id] + dx, y[id] + dy) > CellBoard.BOUNDARY;
+        if (canMove) {
+            moveAndDrawOnBoard(id, dx, dy);
+        }
+        return canMove;
+    }
+
+    //  randomMove() of avatars [from, to) in order
+    public void randomMove(int from, int to) {
+        StripedMover striped = moverFor(to - from);
+        if (striped != null) {
+            striped.move(from, to, null);
+            return;
+        }
+        Random random = world.getRandom();
+        for (int id = from; id < to; id++) {
+            randomMove(id, random);
+        }
+    }
+
+    /*  Steps onto a random one of the neighbouring cells it can walk onto, all equally likely, with a
+        single draw from random. Boxed in, it stays put and draws nothing.
+    */
+    private void randomMove(int id, Random random) {
+        if (isDead(id)) {
+            return;
+        }
+        int mask = walkableMask(id),
+            legalNum = Integer.bitCount(mask);
+        if (legalNum == 0) {
+            return;
+        }
+        //  drop the lowest set bits until the picked one is the lowest
+        for (int pick = Math.floorMod(random.nextInt(), legalNum); pick > 0; pick--) {
+            mask &= mask - 1;
+        }
+        int step = Integer.numberOfTrailingZeros(mask);
+        moveAndDrawOnBoard(id, STEP_DX[step], STEP_DY[step]);
+    }
+
+    //  Bit i is set if the step (STEP_DX[i], STEP_DY[i]) lands on a cell that can be walked onto
+    protected int walkableMask(int id) {
+        byte[] cells = board.getCells();
+        int here = y[id] * width + x[id],
+            mask = 0;
+        if (cells[here + width] > CellBoard.BOUNDARY) {
+            mask |= 1;
+        }
+        if (cells[here - 1] > CellBoard.BOUNDARY) {
+            mask |= 2;
+        }
+        if (cells[here - width] > CellBoard.BOUNDARY) {
+            mask |= 4;
+        }
+        if (cells[here + 1] > CellBoard.BOUNDARY) {
+            mask |= 8;
+        }
+        return mask;
+    }
+
+    //  Avatars [from, to) the field reaches head for its target, the rest wander. One already there stays put.
+    public void chaseOrWander(int from, int to, FlowField field) {
+        StripedMover striped = moverFor(to - from);
+        if (striped != null) {
+            striped.move(from, to, field);
+            return;
+        }
+        Random random = world.getRandom();
+        for (int id = from; id < to; id++) {
+            if (isDead(id)) {
+                continue;
+            }
+            int distance = field.distance(x[id], y[id]);
+            if (distance == FlowField.UNREACHED) {
+                randomMove(id, random);
+            } else if (distance > 0) {
+                tryMove(id, field.nextMove(x[id], y[id]));
+            }
+        }
+    }
+
+    //  The index into STEP_DX and STEP_DY of a 'w', 'a', 's' or 'd' key
+    protected static int stepOf(char key) {
+        switch (Character.toUpperCase(key)) {
+            case 'W':
+                return 0;
+            case 'A':
+                return 1;
+            case 'S':
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /*  Two live avatars on the same cell: food loses health to whatever else is there, which gains
+        one, and a player and an enemy both lose one. Returns whether anything happened.
+    */
+    public boolean collide(int a, int b) {
+        if (isDead(a) || isDead(b) || x[a] != x[b] || y[a] != y[b]) {
+            return false;
+        }
+        if (type[a] == CellBoard.FOOD) {
+            hurt(a);
+            heal(b);
+            return true;
+        }
+        if (type[b] == CellBoard.FOOD) {
+            hurt(b);
+            heal(a);
+            return true;
+        }
+        if (type[a] != type[b]) {
+            hurt(a);
+            hurt(b);
+            return true;
+        }
+        return false;
+    }
+
+    private void heal(int id) {
+        health[id] = Math.min(health[id] + 1, fullHealth[id]);
+    }
+
+    //  Loses one health unless it already did within HURT_COOLDOWN_MILLIS, and dies at 0
+    private void hurt(int id) {
+        long now = world.currentMillis();
+        if (now - lastHurtMillis[id] > HURT_COOLDOWN_MILLIS) {
+            lastHurtMillis[id] = now;
+            health[id]--;
+            if (health[id] <= 0) {
+                kill(id);
+            }
+        }
+    }
+
+    //  The avatar as a line of the text save: type, x, y, full health and health, tab separated
+    public String describe(int id) {
+        String typeName = type[id] == CellBoard.PLAYER ? "PLAYER" : type[id] == CellBoard.ENEMY ? "ENEMY" : "FOOD";
+        return typeName + "\t" + x[id] + "\t" + y[id] + "\t" + fullHealth[id] + "\t" + health[id];
+    }
+}
@@ -0,0 +1,119 @@
+package core;
+
+/**
+ * Distances to the player over the walkable cells of a board, out to a fixed radius, from one
+ * breadth-first search. Every enemy reads its next step off the same field, so chasing costs one
+ * search per player move however many enemies there are.
+ *
+ * The search is only redone when the target has moved since the last one. Cells it didn't reach
+ * (farther than the radius, or walled off) read as UNREACHED. Walls never change during a game and
+ * avatars don't block each other, so the target is all the field depends on.
+ *
+ * A step of the target moves every reached distance by one, so the whole field changes either way and
+ * searching again is no slower than repairing it (FlowFieldBenchmarks).
+ */
+public class FlowField {
+    public static final int UNREACHED = -1;
+
+    private final CellBoard board;
+    private final int width;
+    private final int height;
+    private final int radius;
+    // dist[i] only holds for this search if stamp[i] == searchNum, so nothing has to be cleared between searches.
+    // All three are made by the first search, worlds that are never played don't need them.
+    private int[] dist;
+    private int[] stamp;
+    private int[] queue;
+    private int searchNum = 0;
+    private int targetX = -1;
+    private int targetY = -1;
+
+    public FlowField(CellBoard board, int radius) {
+        this.board = board;
+        width = board.getWidth();
+        height = board.getHeight();
+        this.radius = radius;
+    }
+
+    //  Makes the field lead to (x, y), searching again only if that's not where it leads already
+    public void update(int x, int y) {
+        if (x == targetX && y == targetY) {
+            return;
+        }
+        if (dist == null) {
+            dist = new int[width * height];
+            stamp = new int[width * height];
+            //  A search never gets past the cells within radius steps of the target
+            queue = new int[(int) Math.min((long) width * height, 2L * radius * (radius + 1) + 1)];
+        }
+        targetX = x;
+        targetY = y;
+        searchNum++;
+        byte[] cells = board.getCells();
+        int head = 0,
+            tail = 0,
+            start = y * width + x;
+        dist[start] = 0;
+        stamp[start] = searchNum;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++],
+                d = dist[cell] + 1;
+            if (d > radius) {
+                continue;
+            }
+            int cx = cell % width,
+                cy = cell / width;
+            if (cy + 1 < height) {
+                tail = visit(cells, cell + width, d, tail);
+            }
+            if (cx > 0) {
+                tail = visit(cells, cell - 1, d, tail);
+            }
+            if (cy > 0) {
+                tail = visit(cells, cell - width, d, tail);
+            }
+            if (cx + 1 < width) {
+                tail = visit(cells, cell + 1, d, tail);
+            }
+        }
+    }
+
+    private int visit(byte[] cells, int cell, int d, int tail) {
+        if (stamp[cell] != searchNum && cells[cell] > CellBoard.BOUNDARY) {
+            stamp[cell] = searchNum;
+            dist[cell] = d;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    //  Steps from (x, y) to the target, or UNREACHED
+    public int distance(int x, int y) {
+        if (dist == null) {
+            return UNREACHED;
+        }
+        int cell = y * width + x;
+        return stamp[cell] == searchNum ? dist[cell] : UNREACHED;
+    }
+
+    /*  The key ('w', 'a', 's' or 'd') of a step from (x, y) that gets one closer to the target, trying
+        them in that order. World.NO_INPUT if (x, y) is the target or out of reach.
+    */
+    public char nextMove(int x, int y) {
+        int d = distance(x, y);
+        if (d <= 0) {
+            return World.NO_INPUT;
+        }
+        if (y + 1 < height && distance(x, y + 1) == d - 1) {
+            return 'w';
+        }
+        if (x > 0 && distance(x - 1, y) == d - 1) {
+            return 'a';
+        }
+        if (y > 0 && distance(x, y - 1) == d - 1) {
+            return 's';
+        }
+        return 'd';
+    }
+}
@@ -0,0 +1,82 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The cells of a board with a given status (free floor, for spawning), in an array that a random
+ * one can be picked from with a single draw. Taking a cell swaps the last one into its slot, so
+ * picks and removals cost the same however full or sparse the board is.
+ *
+ * Cells are y * width + x. The index doesn't watch the board: whoever changes a cell it holds
+ * removes it here too.
+ */
+public class FreeCellIndex {
+    private static final int ABSENT = -1;
+
+    private final int[] cells;
+    // slotOf[cell] is where the cell is in cells, or ABSENT. Only built once a cell is removed by name,
+    // spawning alone never needs it.
+    private int[] slotOf;
+    private int size = 0;
+
+    //  Every cell of the board with this status, in row-major order
+    public FreeCellIndex(CellBoard board, byte status) {
+        byte[] boardCells = board.getCells();
+        int[] found = new int[boardCells.length];
+        for (int i = 0; i < boardCells.length; i++) {
+            if (boardCells[i] == status) {
+                found[size++] = i;
+            }
+        }
+        cells = found;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int cell) {
+        return slotOf()[cell] != ABSENT;
+    }
+
+    public void remove(int cell) {
+        int slot = slotOf()[cell];
+        if (slot != ABSENT) {
+            removeSlot(slot);
+        }
+    }
+
+    //  Removes a cell picked uniformly at random, with one call to random.nextInt(size()), and returns it
+    public int takeRandom(Random random) {
+        if (size == 0) {
+            throw new IllegalStateException("No free cell left.");
+        }
+        int slot = random.nextInt(size),
+            cell = cells[slot];
+        removeSlot(slot);
+        return cell;
+    }
+
+    //  Moves the last cell into the slot
+    private void removeSlot(int slot) {
+        int cell = cells[slot],
+            last = cells[--size];
+        cells[slot] = last;
+        if (slotOf != null) {
+            slotOf[last] = slot;
+            slotOf[cell] = ABSENT;
+        }
+    }
+
+    private int[] slotOf() {
+        if (slotOf == null) {
+            slotOf = new int[cells.length];
+            Arrays.fill(slotOf, ABSENT);
+            for (int i = 0; i < size; i++) {
+                slotOf[cells[i]] = i;
+            }
+        }
+        return slotOf;
+    }
+}
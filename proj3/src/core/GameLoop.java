@@ -0,0 +1,82 @@
+package core;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a world on screen at a fixed tick rate, drawing it at most at the render rate and parking the
+ * thread in between, instead of spinning.
+ *
+ * Ticks keep to real time: if some are late they're caught up before the next frame, but never for
+ * longer than the frame budget. Past that the backlog is dropped, so a slow machine plays slower
+ * rather than falling further and further behind.
+ */
+public class GameLoop {
+    public static final int DEFAULT_FRAMES_PER_SECOND = 60;
+    public static final int DEFAULT_FRAME_BUDGET_MILLIS = 100;
+
+    private final int tickMillis;
+    private final long tickNanos;
+    private final long frameNanos;
+    private final long frameBudgetNanos;
+
+    public GameLoop(int tickMillis, int framesPerSecond, int frameBudgetMillis) {
+        if (tickMillis <= 0 || framesPerSecond <= 0 || frameBudgetMillis <= 0) {
+            throw new IllegalArgumentException("Tick length, frame rate and frame budget must be positive.");
+        }
+        this.tickMillis = tickMillis;
+        tickNanos = tickMillis * 1_000_000L;
+        frameNanos = 1_000_000_000L / framesPerSecond;
+        frameBudgetNanos = frameBudgetMillis * 1_000_000L;
+    }
+
+    public GameLoop() {
+        this(World.TICK_MILLIS, DEFAULT_FRAMES_PER_SECOND, DEFAULT_FRAME_BUDGET_MILLIS);
+    }
+
+    //  Plays the world until it's over, reading keys from StdDraw. Returns how it ended.
+    public World.Outcome run(World world) {
+        world.setTickMillis(tickMillis);
+        World.Outcome result = world.getOutcome();
+        long now = System.nanoTime(),
+             nextTick = now + tickNanos,
+             nextFrame = now;
+        boolean changed = true;
+        double mouseX = StdDraw.mouseX(),
+               mouseY = StdDraw.mouseY();
+        while (result == World.Outcome.ONGOING) {
+            long catchUpStart = System.nanoTime();
+            while (result == World.Outcome.ONGOING && System.nanoTime() - nextTick >= 0) {
+                result = world.step(StdDraw.hasNextKeyTyped() ? StdDraw.nextKeyTyped() : World.NO_INPUT);
+                nextTick += tickNanos;
+                changed = true;
+                if (System.nanoTime() - catchUpStart > frameBudgetNanos) {
+                    nextTick = System.nanoTime() + tickNanos;
+                }
+            }
+
+            //  redraw only for new ticks or to move the "Pointing at" text along with the mouse
+            now = System.nanoTime();
+            if (StdDraw.mouseX() != mouseX || StdDraw.mouseY() != mouseY) {
+                mouseX = StdDraw.mouseX();
+                mouseY = StdDraw.mouseY();
+                changed = true;
+            }
+            if (changed && now - nextFrame >= 0) {
+                world.renderScreen();
+                nextFrame = Math.max(nextFrame + frameNanos, now);
+                changed = false;
+            }
+
+            long wait = nextTick - System.nanoTime();
+            if (changed) {
+                wait = Math.min(wait, nextFrame - System.nanoTime());
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        return result;
+    }
+}
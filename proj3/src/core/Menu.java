@@ -23,7 +23,10 @@ public class Menu {
     private String userInputSeed = "";
     private boolean userPressedN = false;
     private long timeWhenPressedN;
+    private final SimulationClock clock = new SystemClock();
     private boolean isFirstN = true;
+    // whether games started from here are recorded to World.REPLAY_DIR
+    private boolean recordsReplays = false;
 
     public Menu(int w, int h, String[] args) {
         canvasWidth = w;
@@ -56,6 +59,7 @@ public class Menu {
                 handleKeyInput(StdDraw.nextKeyTyped());
             }
             if (world != null) {
+                world.setRecordsReplays(recordsReplays);
                 world.runGame();
             }
         }
@@ -67,15 +71,18 @@ public class Menu {
         StdDraw.setPenColor(new Color(255, 255, 255));
         StdDraw.text(.5, .75, "World of Tiles!!!!!");
         StdDraw.setFont(new Font("Arial", Font.PLAIN, Math.min(canvasWidth, canvasHeight) / 20));
-        StdDraw.text(.5, .6, "New Game (N)");
-        StdDraw.text(.5, .52, "Random World (S)");
-        StdDraw.text(.5, .44, "Load Game (L)");
-        StdDraw.text(.5, .36, "Customize Avatar Image (A)");
-        StdDraw.text(.5, .28, "Quit (Q)");
+        StdDraw.text(.5, .62, "New Game (N)");
+        StdDraw.text(.5, .55, "Random World (S)");
+        StdDraw.text(.5, .48, "Load Game (L)");
+        StdDraw.text(.5, .41, "Endless World (E)");
+        StdDraw.text(.5, .34, "Customize Avatar Image (A)");
+        StdDraw.text(.5, .27, "Quit (Q)");
+        StdDraw.setFont(new Font("Arial", Font.PLAIN, Math.min(canvasWidth, canvasHeight) / 40));
+        StdDraw.text(.5, .04, "Record Replays (R): " + (recordsReplays ? "on" : "off"));
         if (userPressedN) {
             StdDraw.setFont(new Font("Arial", Font.PLAIN, Math.min(canvasWidth, canvasHeight) / 25));
             StdDraw.textRight(.35, .18, "Seed: ");
-            if (((System.currentTimeMillis() - timeWhenPressedN) / 500) % 2 == 0) {
+            if (((clock.currentMillis() - timeWhenPressedN) / 500) % 2 == 0) {
                 StdDraw.text(.5, .11, "Press 'S' to start");
             }
             if (!userInputSeed.isEmpty()) {
@@ -106,28 +113,40 @@ public class Menu {
                 return;
             }
             case "L":
-                world = new World(World.SAVE_FILE, pngFile);
+                if (World.hasSavedGame()) {
+                    world = World.loadSavedGame(pngFile);
+                }
                 return;
             case "S":
-                long seed = !userInputSeed.isEmpty() && !userInputSeed.equals("-")
-                        ? new BigInteger(userInputSeed).longValue()
-                        : (args.length > 0 ? Long.parseLong(args[0]) : (new Random()).nextLong());
-                world = new World(seed, pngFile);
+                world = new World(chosenSeed(), pngFile);
+                return;
+            case "E":
+                new ChunkedWorld(chosenSeed()).runGame();
                 return;
             case "N":
                 if (isFirstN) {
                     userPressedN = true;
-                    timeWhenPressedN = System.currentTimeMillis();
+                    timeWhenPressedN = clock.currentMillis();
                 }
                 return;
             case "A":
                 handleAvatarMenuInput();
                 return;
+            case "R":
+                recordsReplays = !recordsReplays;
+                return;
             default:
                 return;
         }
     }
 
+    //  The seed typed in, or the one given on the command line, or a random one
+    private long chosenSeed() {
+        return !userInputSeed.isEmpty() && !userInputSeed.equals("-")
+                ? new BigInteger(userInputSeed).longValue()
+                : (args.length > 0 ? Long.parseLong(args[0]) : (new Random()).nextLong());
+    }
+
     private void handleSeedInput(char inputKey) {
         if (inputKey == '-' && userInputSeed.isEmpty()) {
             userInputSeed = "-";
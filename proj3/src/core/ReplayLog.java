@@ -0,0 +1,261 @@
+package core;
+
+import utils.FileUtils;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * A recording of one game as the seed it was generated from and the keys pressed, each stamped with
+ * the tick it was applied in. Game time runs on ticks (VirtualClock), so replaying the same keys on
+ * the same ticks plays the same game; checksums of the board every CHECKSUM_TICKS ticks tell where a
+ * replay stops matching.
+ *
+ * A log is written while the game is played, through World.recordReplay(), and checked with verify().
+ */
+public class ReplayLog {
+    /*  Log layout, big-endian:
+        header : magic, version, seed (long), width, height, tick length in milliseconds. Width and
+                 height are 0 if the seed picks the size too.
+        records: varint of (ticks since the previous record << 2 | kind), then by kind
+                 INPUT   : varint of the key
+                 CHECKSUM: CRC32 of the board cells, as an int
+                 END     : outcome ordinal, a byte, ONGOING if the game was stopped before it was
+                           over. Nothing comes after it.
+        Varints are 7 bits a byte, lowest first, the top bit set on every byte but the last.
+    */
+    private static final int MAGIC = 0x42594F52;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES + Long.BYTES;
+    private static final int INPUT = 0;
+    private static final int CHECKSUM = 1;
+    private static final int END = 2;
+    public static final int CHECKSUM_TICKS = 100;
+    // bytes kept back before appending them to the file
+    private static final int FLUSH_BYTES = 4096;
+
+    private final World world;
+    private final String filename;
+    private final ByteBuffer pending = ByteBuffer.allocate(FLUSH_BYTES + 32);
+    private final CRC32 crc = new CRC32();
+    private long lastRecordTick = 0;
+    private boolean started = false;
+    private boolean ended = false;
+
+    //  Starts a log of the world from now on. Use World.recordReplay(), which checks it can be replayed.
+    protected ReplayLog(World world, String filename) {
+        this.world = world;
+        this.filename = filename;
+    }
+
+    /*  How a log played back. CUT_SHORT is a log that ends without its END record, because the game
+        was killed or the file was truncated: it matched as far as it went, but it doesn't pass.
+    */
+    public enum Status {
+        MATCHED, DIVERGED, CUT_SHORT
+    }
+
+    //  What verify() found: whether the log played back the same, and if not, at which tick it stopped
+    public static class Result {
+        public final String filename;
+        public final Status status;
+        // status == MATCHED, the only status that passes
+        public final boolean matched;
+        // last tick replayed, the one that diverged if it didn't match
+        public final long tick;
+        public final String message;
+
+        Result(String filename, Status status, long tick, String message) {
+            this.filename = filename;
+            this.status = status;
+            this.matched = status == Status.MATCHED;
+            this.tick = tick;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            String verdict = status == Status.MATCHED ? "ok" : status == Status.DIVERGED ? "diverged" : "cut short";
+            return filename + ": " + verdict + " at tick " + tick + (message == null ? "" : ", " + message);
+        }
+    }
+
+    //  Called by World.step() with the key it just applied and how the game stands after it
+    protected void afterStep(long tick, char input, World.Outcome outcome) {
+        if (ended) {
+            return;
+        }
+        start();
+        if (input != World.NO_INPUT) {
+            putRecord(tick, INPUT);
+            putVarint(input);
+        }
+        if (tick % CHECKSUM_TICKS == 0) {
+            putRecord(tick, CHECKSUM);
+            pending.putInt(checksum(world));
+        }
+        if (outcome != World.Outcome.ONGOING) {
+            putRecord(tick, END);
+            pending.put((byte) outcome.ordinal());
+            ended = true;
+        }
+        if (ended || pending.position() >= FLUSH_BYTES) {
+            flush();
+        }
+    }
+
+    //  Ends the log of a game stopped before it's over with an ONGOING END record, and writes it out
+    protected void stop() {
+        if (ended) {
+            return;
+        }
+        start();
+        putRecord(world.getTick(), END);
+        pending.put((byte) World.Outcome.ONGOING.ordinal());
+        ended = true;
+        flush();
+    }
+
+    private void start() {
+        if (!started) {
+            FileUtils.writeFile(filename, header());
+            started = true;
+        }
+    }
+
+    //  Appends whatever hasn't been written yet
+    public void flush() {
+        if (pending.position() > 0) {
+            FileUtils.appendFile(filename, pending.flip());
+            pending.clear();
+        }
+    }
+
+    private ByteBuffer header() {
+        boolean sizeFromSeed = world.isSizeFromSeed();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(world.getSeed())
+                .putInt(sizeFromSeed ? 0 : world.getWidth()).putInt(sizeFromSeed ? 0 : world.getHeight())
+                .putInt(world.getTickMillis());
+        return header.flip();
+    }
+
+    private void putRecord(long tick, int kind) {
+        putVarint((tick - lastRecordTick) << 2 | kind);
+        lastRecordTick = tick;
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            pending.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        pending.put((byte) value);
+    }
+
+    //  Throws IllegalArgumentException for one longer than a long
+    private static long getVarint(ByteBuffer log) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 63) {
+                throw new IllegalArgumentException("varint longer than 64 bits");
+            }
+            byte b = log.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private int checksum(World checked) {
+        crc.reset();
+        crc.update(checked.getCellBoard().getCells());
+        return (int) crc.getValue();
+    }
+
+    /*  Plays the log back on a world regenerated from its seed, as fast as it goes and without a
+        screen, checking every checksum and the way the game ended. Stops at the first that differs.
+        A log cut short (the game was killed) is checked as far as it goes, and comes back CUT_SHORT
+        unless it diverged before that. A record that can't be read counts as diverging.
+    */
+    public static Result verify(String filename) {
+        ByteBuffer log = FileUtils.mapFile(filename);
+        if (log.remaining() < HEADER_BYTES || log.getInt() != MAGIC) {
+            return new Result(filename, Status.DIVERGED, 0, "not a replay log");
+        }
+        int version = log.getInt();
+        if (version > VERSION) {
+            return new Result(filename, Status.DIVERGED, 0, "replay log version " + version + " is newer than this game supports");
+        }
+        long seed = log.getLong();
+        int width = log.getInt(),
+            height = log.getInt(),
+            tickMillis = log.getInt();
+        World world = width == 0 ? new World(seed) : new World(width, height, seed);
+        world.setTickMillis(tickMillis);
+        world.setSavesOnQuit(false);
+        ReplayLog checker = new ReplayLog(world, filename);
+
+        long tick = 0;
+        try {
+            while (log.hasRemaining()) {
+                long header = getVarint(log),
+                     recordTick = tick + (header >>> 2);
+                int kind = (int) (header & 3);
+                if (kind > END) {
+                    return new Result(filename, Status.DIVERGED, tick, "unknown record kind " + kind);
+                }
+                if (recordTick > tick && world.isGameOver()) {
+                    return new Result(filename, Status.DIVERGED, tick, "game ended " + world.getOutcome() + " before the log did");
+                }
+                //  the ticks in between had no input, the record's own tick gets its input if it has one
+                while (tick < recordTick - 1) {
+                    world.step(World.NO_INPUT);
+                    tick++;
+                }
+                if (tick < recordTick) {
+                    char input = World.NO_INPUT;
+                    if (kind == INPUT) {
+                        long key = getVarint(log);
+                        if (key == World.NO_INPUT || key > Character.MAX_VALUE) {
+                            return new Result(filename, Status.DIVERGED, tick, "bad input key " + key);
+                        }
+                        input = (char) key;
+                    }
+                    world.step(input);
+                    tick++;
+                } else if (kind == INPUT) {
+                    return new Result(filename, Status.DIVERGED, tick, "two inputs in one tick");
+                }
+                if (kind == CHECKSUM) {
+                    int expected = log.getInt(),
+                        actual = checker.checksum(world);
+                    if (expected != actual) {
+                        return new Result(filename, Status.DIVERGED, tick, "board checksum " + Integer.toHexString(actual)
+                                + ", recorded " + Integer.toHexString(expected));
+                    }
+                } else if (kind == END) {
+                    int ordinal = log.get();
+                    if (ordinal < 0 || ordinal >= World.Outcome.values().length) {
+                        return new Result(filename, Status.DIVERGED, tick, "bad outcome " + ordinal);
+                    }
+                    World.Outcome expected = World.Outcome.values()[ordinal];
+                    if (world.getOutcome() != expected) {
+                        return new Result(filename, Status.DIVERGED, tick, "game " + world.getOutcome() + ", recorded " + expected);
+                    }
+                    if (log.hasRemaining()) {
+                        return new Result(filename, Status.DIVERGED, tick, log.remaining() + " bytes after the end");
+                    }
+                    return new Result(filename, Status.MATCHED, tick, null);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            return new Result(filename, Status.CUT_SHORT, tick, "log ends in the middle of a record");
+        } catch (IllegalArgumentException e) {
+            return new Result(filename, Status.DIVERGED, tick, "bad record, " + e.getMessage());
+        }
+        return new Result(filename, Status.CUT_SHORT, tick, "log ends without an end record");
+    }
+}
@@ -0,0 +1,92 @@
+package core;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Checks many replay logs at once, spread over a fork-join pool. Each log is played back on its own
+ * world, so they don't affect each other, and the results come back in the order of the files.
+ *
+ * Run on its own, it checks the files and directories of replay logs it's given (World.REPLAY_DIR if
+ * none), prints the ones that didn't match and exits with 1 if there were any.
+ */
+public class ReplayVerifier {
+    // below this many logs a task just checks them instead of splitting further
+    private static final int LOGS_PER_TASK = 4;
+
+    private final ForkJoinPool pool;
+
+    public ReplayVerifier(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ReplayVerifier() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ReplayLog.Result[] verify(String[] filenames) {
+        ReplayLog.Result[] results = new ReplayLog.Result[filenames.length];
+        pool.invoke(new VerifyRange(filenames, results, 0, filenames.length));
+        return results;
+    }
+
+    private static class VerifyRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] filenames;
+        private final ReplayLog.Result[] results;
+        private final int from;
+        private final int to;
+
+        VerifyRange(String[] filenames, ReplayLog.Result[] results, int from, int to) {
+            this.filenames = filenames;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LOGS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = ReplayLog.verify(filenames[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new VerifyRange(filenames, results, from, mid), new VerifyRange(filenames, results, mid, to));
+        }
+    }
+
+    public static void main(String[] args) {
+        String[] paths = args.length > 0 ? args : new String[]{World.REPLAY_DIR};
+        String[] filenames = Arrays.stream(paths)
+                .flatMap(path -> {
+                    File[] inDir = new File(path).listFiles((dir, name) -> name.endsWith(".replay"));
+                    return inDir == null ? Arrays.stream(new String[]{path}) : Arrays.stream(inDir).map(File::getPath);
+                })
+                .sorted()
+                .toArray(String[]::new);
+
+        long time = System.nanoTime();
+        ReplayLog.Result[] results = new ReplayVerifier().verify(filenames);
+        double seconds = (System.nanoTime() - time) / 1e9;
+        int diverged = 0,
+            cutShort = 0;
+        for (ReplayLog.Result result : results) {
+            if (!result.matched) {
+                System.out.println(result);
+            }
+            if (result.status == ReplayLog.Status.DIVERGED) {
+                diverged++;
+            } else if (result.status == ReplayLog.Status.CUT_SHORT) {
+                cutShort++;
+            }
+        }
+        System.out.println(results.length + " replays checked in " + seconds + " s, " + diverged + " diverged, "
+                + cutShort + " cut short");
+        System.exit(diverged + cutShort == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,193 @@
+package core;
+
+import utils.FileUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The game's save, append-only. Instead of rewriting the whole world on every save, each save
+ * appends a commit holding only what changed since the last one: the food counters, the random
+ * generator, the cells that changed and the avatars that moved or lost health.
+ *
+ * The world the commits apply to is either regenerated from its seed, or a snapshot written next to
+ * the journal. Once the journal grows bigger than a snapshot would be, it's compacted into one.
+ */
+public class SaveJournal {
+    /*  Journal layout, big-endian:
+        header : magic, version, base, seed (long), width, height. Width and height are 0 if the seed
+                 picks the size too, and the seed is unused if the base is a snapshot.
+        commits: payload length, payload, COMMIT_MARK. A commit without its mark is the tail of an
+                 interrupted save and is dropped on load, along with anything after it.
+        payload: food eaten by player, food eaten by enemies, rng state (long), rng call count,
+                 number of cells, then index (y * width + x) and status byte of each cell,
+                 number of avatars, then number (see World.getEntities()), x, y, health of each avatar
+    */
+    private static final int MAGIC = 0x42594F4A;
+    private static final int VERSION = 1;
+    private static final int BASE_SEED = 0;
+    private static final int BASE_SNAPSHOT = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES + Long.BYTES;
+    private static final int COMMIT_MARK = 0x434F4D54;
+    private static final int CELL_RECORD_BYTES = Integer.BYTES + 1;
+    private static final int AVATAR_RECORD_BYTES = 4 * Integer.BYTES;
+
+    private final World world;
+    private final String filename;
+    private final EntityStore avatars;
+    // where each avatar was, and its health, as of the last commit
+    private final int[] committedX;
+    private final int[] committedY;
+    private final int[] committedHealth;
+    // false until this journal has written its own header to the file
+    private boolean started = false;
+
+    public SaveJournal(World world, String filename) {
+        this.world = world;
+        this.filename = filename;
+        avatars = world.getEntities();
+        committedX = new int[avatars.size()];
+        committedY = new int[avatars.size()];
+        committedHealth = new int[avatars.size()];
+        Arrays.fill(committedHealth, Integer.MIN_VALUE);
+    }
+
+    //  The snapshot a compacted journal builds on
+    public static String snapshotFileOf(String journalFile) {
+        return journalFile + ".snapshot";
+    }
+
+    public static World load(String filename, String playerImageFile) {
+        ByteBuffer journal = FileUtils.mapFile(filename);
+        if (journal.remaining() < HEADER_BYTES || journal.getInt() != MAGIC) {
+            throw new IllegalArgumentException(filename + " is not a save journal.");
+        }
+        int version = journal.getInt();
+        if (version > VERSION) {
+            throw new IllegalArgumentException("Save journal version " + version + " is newer than this game supports.");
+        }
+        int base = journal.getInt();
+        long seed = journal.getLong();
+        int width = journal.getInt(),
+            height = journal.getInt();
+        World world;
+        if (base == BASE_SNAPSHOT) {
+            world = new World(snapshotFileOf(filename), playerImageFile);
+        } else if (width == 0) {
+            world = new World(seed, playerImageFile);
+        } else {
+            world = new World(width, height, seed, playerImageFile);
+        }
+
+        SaveJournal saveJournal = new SaveJournal(world, filename);
+        int validLength = journal.position();
+        while (journal.remaining() >= Integer.BYTES) {
+            int payloadBytes = journal.getInt();
+            if (payloadBytes < 0 || journal.remaining() < payloadBytes + Integer.BYTES
+                    || journal.getInt(journal.position() + payloadBytes) != COMMIT_MARK) {
+                break;
+            }
+            saveJournal.apply(journal);
+            journal.getInt();
+            validLength = journal.position();
+        }
+        if (validLength < journal.limit()) {
+            FileUtils.truncateFile(filename, validLength);
+        }
+        saveJournal.markCommitted();
+        saveJournal.started = true;
+        world.setJournal(saveJournal);
+        return world;
+    }
+
+    public void commit() {
+        if (!started) {
+            if (!world.isGeneratedFromSeed()) {
+                //  nothing to rebuild this world from but a snapshot
+                compact();
+                return;
+            }
+            FileUtils.writeFile(filename, header(BASE_SEED));
+            started = true;
+        }
+        FileUtils.appendFile(filename, changesSinceLastCommit());
+        if (FileUtils.fileSize(filename) > world.snapshotBytes()) {
+            compact();
+        }
+    }
+
+    //  Writes the world as it is now to the snapshot and empties the journal on top of it
+    public void compact() {
+        world.writeSnapshot(snapshotFileOf(filename));
+        FileUtils.writeFile(filename, header(BASE_SNAPSHOT));
+        markCommitted();
+        started = true;
+    }
+
+    private ByteBuffer header(int base) {
+        boolean sizeFromSeed = world.isSizeFromSeed();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(base).putLong(world.getSeed())
+                .putInt(sizeFromSeed ? 0 : world.getWidth()).putInt(sizeFromSeed ? 0 : world.getHeight());
+        return header.flip();
+    }
+
+    private ByteBuffer changesSinceLastCommit() {
+        byte[] cells = world.getCellBoard().getCells();
+        int[] changedCells = world.getCellBoard().takeChanges();
+        int changedAvatarNum = 0;
+        int[] changedAvatars = new int[avatars.size()];
+        for (int i = 0; i < avatars.size(); i++) {
+            if (avatars.getX(i) != committedX[i] || avatars.getY(i) != committedY[i]
+                    || avatars.getHealth(i) != committedHealth[i]) {
+                changedAvatars[changedAvatarNum++] = i;
+            }
+        }
+
+        int payloadBytes = 5 * Integer.BYTES + Long.BYTES + changedCells.length * CELL_RECORD_BYTES
+                + changedAvatarNum * AVATAR_RECORD_BYTES;
+        ByteBuffer commit = ByteBuffer.allocate(payloadBytes + 2 * Integer.BYTES);
+        World.RandomAssumedOnlyGeneratingIntJustForFileSaving random = world.getRandom();
+        commit.putInt(payloadBytes)
+                .putInt(world.getNumOfFoodEatenByPlayer()).putInt(world.getNumOfFoodEatenByEnemies())
+                .putLong(random.getState()).putInt(random.numOfCalls)
+                .putInt(changedCells.length);
+        for (int index : changedCells) {
+            commit.putInt(index).put(cells[index]);
+        }
+        commit.putInt(changedAvatarNum);
+        for (int j = 0; j < changedAvatarNum; j++) {
+            int i = changedAvatars[j];
+            commit.putInt(i).putInt(avatars.getX(i)).putInt(avatars.getY(i)).putInt(avatars.getHealth(i));
+            committedX[i] = avatars.getX(i);
+            committedY[i] = avatars.getY(i);
+            committedHealth[i] = avatars.getHealth(i);
+        }
+        return commit.putInt(COMMIT_MARK).flip();
+    }
+
+    private void apply(ByteBuffer journal) {
+        world.restoreFoodEaten(journal.getInt(), journal.getInt());
+        long rngState = journal.getLong();
+        world.getRandom().restoreState(rngState, journal.getInt());
+        CellBoard board = world.getCellBoard();
+        int width = board.getWidth();
+        for (int i = journal.getInt(); i > 0; i--) {
+            int index = journal.getInt();
+            board.set(index % width, index / width, journal.get());
+        }
+        for (int i = journal.getInt(); i > 0; i--) {
+            avatars.restore(journal.getInt(), journal.getInt(), journal.getInt(), journal.getInt());
+        }
+    }
+
+    //  Takes the world as it is now as the last commit
+    private void markCommitted() {
+        for (int i = 0; i < avatars.size(); i++) {
+            committedX[i] = avatars.getX(i);
+            committedY[i] = avatars.getY(i);
+            committedHealth[i] = avatars.getHealth(i);
+        }
+        world.getCellBoard().trackChanges();
+    }
+}
@@ -0,0 +1,14 @@
+package core;
+
+/**
+ * Where a world reads the time from, for damage cooldowns and enemy move pacing. Each game tick
+ * calls advance(), so a clock can either keep game time itself (VirtualClock) or follow the wall
+ * clock (SystemClock) and ignore it.
+ */
+public interface SimulationClock {
+    //  Milliseconds since the clock was made
+    long currentMillis();
+
+    //  A tick of this many milliseconds has passed in the game
+    void advance(long millis);
+}
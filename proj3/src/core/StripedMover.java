@@ -0,0 +1,269 @@
+package core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves a range of an EntityStore's avatars on a fork-join pool, with exactly the outcome of the
+ * store's own loop moving them one after another: the same steps, the same draws from the world's
+ * random numbers, the same board, and every avatar filed under the same cell of the CollisionGrid.
+ * The grid may list a cell as contested that a one by one pass wouldn't have, if something stepped
+ * on and off it in the same tick; resolving it finds nothing and prune() drops it.
+ *
+ * Avatars only ever stop at walls, never at each other, so the steps one could take don't depend on
+ * the avatars moved before it. The first pass works those out for blocks of AVATARS_PER_TASK
+ * avatars in parallel, counting how many random draws each block needs. That count tells where in
+ * the random sequence each block starts, so the second pass jumps straight there and picks every
+ * block's steps in parallel as well.
+ *
+ * The moves are then made by horizontal stripes of the board, each stripe taking the ends of moves
+ * that fall in its rows, lowest avatar first. A cell stepped off and onto by several avatars in one
+ * tick ends up the way the highest numbered of them left it, as it would in one pass, and no two
+ * stripes ever write the same cell or the same cell's list of avatars. Each block counts the moves
+ * it has for each stripe while picking them, so a third pass can sort them into a list per stripe,
+ * still lowest avatar first, and a stripe never looks at moves elsewhere. Avatars are taken out of the
+ * CollisionGrid in a pass of their own first, so one isn't filed under its new cell before its old
+ * one has let go of it.
+ */
+public class StripedMover {
+    // below this many avatars a task just plans or picks their moves instead of splitting further
+    private static final int AVATARS_PER_TASK = 4096;
+    // stripes per thread of the pool, so a stripe crowded with avatars holds the others up less
+    private static final int STRIPES_PER_THREAD = 4;
+    // plan[i] of an avatar that doesn't move; WANDER | mask for a random pick out of the walkable
+    // steps in mask; any other value is the step it takes
+    private static final byte STAY = -1;
+    private static final byte WANDER = 16;
+    private static final int NONE = -1;
+
+    private final World world;
+    private final EntityStore avatars;
+    private final CellBoard board;
+    private final ForkJoinPool pool;
+    private final int width;
+    private final int stripeNum;
+    private final int cellsPerStripe;
+
+    // the range being moved, and what's worked out for avatar first + i at index i
+    private int first;
+    private int num;
+    private FlowField field;
+    private byte[] plan = new byte[0];
+    private int[] fromCell = new int[0];
+    private int[] toCell = new int[0];
+    // the moves of stripe s are stripeMoves[stripeStart[s]] to stripeMoves[stripeStart[s + 1] - 1]
+    private int[] stripeMoves = new int[0];
+    private final int[] stripeStart;
+    // blockStripe[b * stripeNum + s] counts block b's moves in stripe s, then is where the next one goes
+    private int[] blockStripe;
+    // drawsBefore[b] is how many draws the blocks before block b make
+    private long[] drawsBefore;
+    private long startState;
+
+    public StripedMover(World world, EntityStore avatars, ForkJoinPool pool) {
+        this.world = world;
+        this.avatars = avatars;
+        this.pool = pool;
+        board = world.getCellBoard();
+        width = board.getWidth();
+        int height = board.getHeight();
+        int stripes = pool.getParallelism() * STRIPES_PER_THREAD;
+        int rowsPerStripe = (height + stripes - 1) / stripes;
+        stripeNum = (height + rowsPerStripe - 1) / rowsPerStripe;
+        cellsPerStripe = rowsPerStripe * width;
+        stripeStart = new int[stripeNum + 1];
+    }
+
+    //  EntityStore.chaseOrWander() of avatars [from, to), or randomMove() if field is null
+    public void move(int from, int to, FlowField chaseField) {
+        first = from;
+        num = to - from;
+        field = chaseField;
+        if (plan.length < num) {
+            plan = new byte[num];
+            fromCell = new int[num];
+            toCell = new int[num];
+            stripeMoves = new int[2 * num];
+        }
+        int blockNum = Math.max(1, (num + AVATARS_PER_TASK - 1) / AVATARS_PER_TASK);
+        drawsBefore = new long[blockNum + 1];
+        blockStripe = new int[blockNum * stripeNum];
+        pool.invoke(new Pass(Pass.PLAN, 0, blockNum));
+        for (int b = 0; b < blockNum; b++) {
+            drawsBefore[b + 1] += drawsBefore[b];
+        }
+
+        World.RandomAssumedOnlyGeneratingIntJustForFileSaving random = world.getRandom();
+        startState = random.getState();
+        pool.invoke(new Pass(Pass.PICK, 0, blockNum));
+        random.skip(drawsBefore[blockNum]);
+
+        int moveNum = 0;
+        for (int s = 0; s < stripeNum; s++) {
+            stripeStart[s] = moveNum;
+            for (int b = 0; b < blockNum; b++) {
+                int count = blockStripe[b * stripeNum + s];
+                blockStripe[b * stripeNum + s] = moveNum;
+                moveNum += count;
+            }
+        }
+        stripeStart[stripeNum] = moveNum;
+        pool.invoke(new Pass(Pass.SORT, 0, blockNum));
+
+        if (avatars.getCollisionGrid() != null) {
+            pool.invoke(new Pass(Pass.UNFILE, 0, stripeNum));
+        }
+        pool.invoke(new Pass(Pass.APPLY, 0, stripeNum));
+        field = null;
+    }
+
+    //  Works out the steps each avatar of the block could take, and counts its draws into drawsBefore[b + 1]
+    private void plan(int b) {
+        int draws = 0;
+        for (int i = b * AVATARS_PER_TASK, end = Math.min(num, i + AVATARS_PER_TASK); i < end; i++) {
+            int id = first + i;
+            plan[i] = STAY;
+            if (avatars.isDead(id)) {
+                continue;
+            }
+            int x = avatars.getX(id),
+                y = avatars.getY(id),
+                distance = field == null ? FlowField.UNREACHED : field.distance(x, y),
+                mask = avatars.walkableMask(id);
+            if (distance == FlowField.UNREACHED) {
+                if (mask != 0) {
+                    plan[i] = (byte) (WANDER | mask);
+                    draws++;
+                }
+            } else if (distance > 0) {
+                int step = EntityStore.stepOf(field.nextMove(x, y));
+                if ((mask & 1 << step) != 0) {
+                    plan[i] = (byte) step;
+                }
+            }
+        }
+        drawsBefore[b + 1] = draws;
+    }
+
+    //  Picks the block's steps with the draws it would get moving after every avatar before it
+    private void pick(int b) {
+        long state = World.RandomAssumedOnlyGeneratingIntJustForFileSaving.advance(startState, drawsBefore[b]);
+        for (int i = b * AVATARS_PER_TASK, end = Math.min(num, i + AVATARS_PER_TASK); i < end; i++) {
+            int step = plan[i];
+            if (step == STAY) {
+                toCell[i] = NONE;
+                continue;
+            }
+            if ((step & WANDER) != 0) {
+                state = World.RandomAssumedOnlyGeneratingIntJustForFileSaving.advance(state, 1);
+                int mask = step & ~WANDER;
+                //  same pick as EntityStore.randomMove()
+                for (int pick = Math.floorMod(World.RandomAssumedOnlyGeneratingIntJustForFileSaving.intAt(state),
+                        Integer.bitCount(mask)); pick > 0; pick--) {
+                    mask &= mask - 1;
+                }
+                step = Integer.numberOfTrailingZeros(mask);
+            }
+            int id = first + i;
+            fromCell[i] = avatars.getY(id) * width + avatars.getX(id);
+            toCell[i] = fromCell[i] + EntityStore.STEP_DY[step] * width + EntityStore.STEP_DX[step];
+            int fromStripe = fromCell[i] / cellsPerStripe,
+                toStripe = toCell[i] / cellsPerStripe;
+            blockStripe[b * stripeNum + fromStripe]++;
+            if (toStripe != fromStripe) {
+                blockStripe[b * stripeNum + toStripe]++;
+            }
+        }
+    }
+
+    //  Adds the block's moves to the lists of the stripes they start or end in
+    private void sort(int b) {
+        for (int i = b * AVATARS_PER_TASK, end = Math.min(num, i + AVATARS_PER_TASK); i < end; i++) {
+            if (toCell[i] == NONE) {
+                continue;
+            }
+            int fromStripe = fromCell[i] / cellsPerStripe,
+                toStripe = toCell[i] / cellsPerStripe;
+            stripeMoves[blockStripe[b * stripeNum + fromStripe]++] = i;
+            if (toStripe != fromStripe) {
+                stripeMoves[blockStripe[b * stripeNum + toStripe]++] = i;
+            }
+        }
+    }
+
+    private void unfile(int stripe) {
+        CollisionGrid grid = avatars.getCollisionGrid();
+        for (int k = stripeStart[stripe]; k < stripeStart[stripe + 1]; k++) {
+            int i = stripeMoves[k];
+            if (fromCell[i] / cellsPerStripe == stripe) {
+                grid.remove(first + i);
+            }
+        }
+    }
+
+    private void apply(int stripe) {
+        CollisionGrid grid = avatars.getCollisionGrid();
+        for (int k = stripeStart[stripe]; k < stripeStart[stripe + 1]; k++) {
+            int i = stripeMoves[k],
+                from = fromCell[i],
+                to = toCell[i];
+            if (from / cellsPerStripe == stripe) {
+                board.set(from % width, from / width, CellBoard.INTERIOR);
+            }
+            if (to / cellsPerStripe == stripe) {
+                int id = first + i;
+                avatars.place(id, to % width, to / width);
+                board.set(to % width, to / width, avatars.getType(id));
+                if (grid != null) {
+                    grid.insert(id, to);
+                }
+            }
+        }
+    }
+
+    //  One of the passes over blocks of avatars or stripes of the board, units [from, to) of it
+    private class Pass extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        static final int PLAN = 0;
+        static final int PICK = 1;
+        static final int SORT = 2;
+        static final int UNFILE = 3;
+        static final int APPLY = 4;
+
+        private final int kind;
+        private final int from;
+        private final int to;
+
+        Pass(int kind, int from, int to) {
+            this.kind = kind;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Pass(kind, from, mid), new Pass(kind, mid, to));
+                return;
+            }
+            switch (kind) {
+                case PLAN:
+                    plan(from);
+                    break;
+                case PICK:
+                    pick(from);
+                    break;
+                case SORT:
+                    sort(from);
+                    break;
+                case UNFILE:
+                    unfile(from);
+                    break;
+                default:
+                    apply(from);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package core;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Grid-bucket index over the rectangles (rooms or hallways) of a board, so the generator doesn't
+ * scan every rectangle to find the one covering a tile, or the closest one to a room.
+ *
+ * Rectangles are half-open, [fromX, toX) * [fromY, toY), and are numbered in the order they're added.
+ * Whenever several rectangles qualify, the one with the lowest number wins, same as a plain scan.
+ */
+public class StructIndex {
+    private static final int DEFAULT_BUCKET_SIZE = 8;
+
+    private final int width;
+    private final int height;
+    private final int bucketSize;
+    private final int bucketColumns;
+    private final int bucketRows;
+
+    private int[] fromXs = new int[16];
+    private int[] fromYs = new int[16];
+    private int[] toXs = new int[16];
+    private int[] toYs = new int[16];
+    private int size = 0;
+
+    // cells[column * bucketRows + row], for "which rectangle covers this tile"
+    private final int[][] cells;
+    private final int[] cellSizes;
+    // every rectangle is also filed under each column band and row band it spans, for the gap queries
+    private final int[][] columns;
+    private final int[] columnSizes;
+    private final int[][] rows;
+    private final int[] rowSizes;
+
+    public StructIndex(int width, int height, int bucketSize) {
+        this.width = width;
+        this.height = height;
+        this.bucketSize = bucketSize;
+        bucketColumns = (width + bucketSize - 1) / bucketSize;
+        bucketRows = (height + bucketSize - 1) / bucketSize;
+        cells = new int[bucketColumns * bucketRows][];
+        cellSizes = new int[bucketColumns * bucketRows];
+        columns = new int[bucketColumns][];
+        columnSizes = new int[bucketColumns];
+        rows = new int[bucketRows][];
+        rowSizes = new int[bucketRows];
+    }
+
+    public StructIndex(int width, int height) {
+        this(width, height, DEFAULT_BUCKET_SIZE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //  Returns the number given to the new rectangle
+    public int add(int fromX, int fromY, int toX, int toY) {
+        if (size == fromXs.length) {
+            fromXs = Arrays.copyOf(fromXs, size * 2);
+            fromYs = Arrays.copyOf(fromYs, size * 2);
+            toXs = Arrays.copyOf(toXs, size * 2);
+            toYs = Arrays.copyOf(toYs, size * 2);
+        }
+        int n = size++;
+        fromXs[n] = fromX;
+        fromYs[n] = fromY;
+        toXs[n] = toX;
+        toYs[n] = toY;
+        if (fromX >= toX || fromY >= toY) {
+            return n;
+        }
+        int fromColumn = columnOf(fromX),
+            toColumn = columnOf(toX - 1),
+            fromRow = rowOf(fromY),
+            toRow = rowOf(toY - 1);
+        for (int c = fromColumn; c <= toColumn; c++) {
+            append(columns, columnSizes, c, n);
+            for (int r = fromRow; r <= toRow; r++) {
+                append(cells, cellSizes, c * bucketRows + r, n);
+            }
+        }
+        for (int r = fromRow; r <= toRow; r++) {
+            append(rows, rowSizes, r, n);
+        }
+        return n;
+    }
+
+    //  Lowest-numbered rectangle covering tile (x, y), or -1 if there's none
+    public int indexContaining(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+        int bucket = columnOf(x) * bucketRows + rowOf(y),
+            found = -1;
+        int[] candidates = cells[bucket];
+        for (int i = 0; i < cellSizes[bucket]; i++) {
+            int n = candidates[i];
+            if ((found == -1 || n < found) && fromXs[n] <= x && x < toXs[n] && fromYs[n] <= y && y < toYs[n]) {
+                found = n;
+            }
+        }
+        return found;
+    }
+
+    /*  The accepted rectangle with the smallest horizontal gap to [fromX, toX), where the gap is 0 if
+        the two overlap on the x-axis. Returns -1 if none is accepted.
+    */
+    public int nearestByGapX(int fromX, int toX, IntPredicate accept) {
+        return nearestByGap(fromX, toX, accept, columns, columnSizes, bucketColumns, fromXs, toXs);
+    }
+
+    //  Same as nearestByGapX() along the y-axis
+    public int nearestByGapY(int fromY, int toY, IntPredicate accept) {
+        return nearestByGap(fromY, toY, accept, rows, rowSizes, bucketRows, fromYs, toYs);
+    }
+
+    /*  A rectangle is filed under every band it spans, including the band holding its point nearest to
+        the query. A band can't hold anything closer than bandGap(), so bands are visited from the query
+        outward and the search stops once the next band on both sides is further than the best so far.
+    */
+    private int nearestByGap(int from, int to, IntPredicate accept,
+                             int[][] bands, int[] bandSizes, int bandNum, int[] froms, int[] tos) {
+        int best = -1,
+            bestGap = Integer.MAX_VALUE,
+            left = Math.min(bandNum - 1, Math.max(0, (from - 1) / bucketSize)),
+            right = left + 1;
+        while (left >= 0 || right < bandNum) {
+            int leftGap = left >= 0 ? bandGap(left, from, to) : Integer.MAX_VALUE,
+                rightGap = right < bandNum ? bandGap(right, from, to) : Integer.MAX_VALUE;
+            if (Math.min(leftGap, rightGap) > bestGap) {
+                break;
+            }
+            int band = leftGap <= rightGap ? left-- : right++;
+            int[] candidates = bands[band];
+            for (int i = 0; i < bandSizes[band]; i++) {
+                int n = candidates[i],
+                    gap = Math.max(0, Math.max(froms[n] - to, from - tos[n]));
+                if ((gap < bestGap || (gap == bestGap && n < best)) && accept.test(n)) {
+                    best = n;
+                    bestGap = gap;
+                }
+            }
+        }
+        return best;
+    }
+
+    private int bandGap(int band, int from, int to) {
+        int bandFrom = band * bucketSize;
+        return Math.max(0, Math.max(bandFrom - to, from - bandFrom - bucketSize));
+    }
+
+    private int columnOf(int x) {
+        return Math.min(bucketColumns - 1, Math.max(0, x / bucketSize));
+    }
+
+    private int rowOf(int y) {
+        return Math.min(bucketRows - 1, Math.max(0, y / bucketSize));
+    }
+
+    private static void append(int[][] buckets, int[] bucketSizes, int bucket, int n) {
+        if (buckets[bucket] == null) {
+            buckets[bucket] = new int[4];
+        } else if (bucketSizes[bucket] == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], bucketSizes[bucket] * 2);
+        }
+        buckets[bucket][bucketSizes[bucket]++] = n;
+    }
+}
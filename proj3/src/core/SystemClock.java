@@ -0,0 +1,18 @@
+package core;
+
+/**
+ * Wall clock time. Ticks don't move it, so a game on it goes at the speed of real time whatever
+ * the tick rate is, and gives different results run to run.
+ */
+public class SystemClock implements SimulationClock {
+    private final long startMillis = System.currentTimeMillis();
+
+    @Override
+    public long currentMillis() {
+        return System.currentTimeMillis() - startMillis;
+    }
+
+    @Override
+    public void advance(long millis) {
+    }
+}
@@ -0,0 +1,19 @@
+package core;
+
+/**
+ * Game time made only of ticks. Nothing depends on how fast they actually run, so a headless game
+ * can be played as fast as the machine goes and still come out the same as one played on screen.
+ */
+public class VirtualClock implements SimulationClock {
+    private long millis = 0;
+
+    @Override
+    public long currentMillis() {
+        return millis;
+    }
+
+    @Override
+    public void advance(long millis) {
+        this.millis += millis;
+    }
+}
@@ -1,33 +1,58 @@
 package core;
 
 import edu.princeton.cs.algs4.StdDraw;
+import tileengine.Camera;
 import tileengine.TERenderer;
 import tileengine.TETile;
+import tileengine.TileAtlas;
 import tileengine.Tileset;
 import utils.FileUtils;
 
 import java.awt.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 public class World {
 
-    private static final int DEFAULT_WIDTH_MIN = 64;
-    private static final int DEFAULT_WIDTH_MAX = 88;
-    private static final int DEFAULT_HEIGHT_MIN = 40;
-    private static final int DEFAULT_HEIGHT_MAX = 55;
-    private static final int DEFAULT_ROOM_SIDE_LENGTH_MIN = 5;
-    private static final int DEFAULT_STRUCTURE_DISTANCE_MIN = 1;
-    protected static final String SAVE_FILE = "save.txt";
+    //  The game's one save, see saveGame(). Snapshots and text exports are only read when asked for by name.
+    protected static final String JOURNAL_FILE = "save.journal";
+    //  Where games saved before the journal are, loaded only if there's no journal next to it
+    protected static final String LEGACY_SAVE_FILE = "save.txt";
+    //  The working directory, where the game keeps its save
+    protected static final String SAVE_DIRECTORY = ".";
+    //  Where ':' 'T' exports the game as text, see exportTextSave(). Never loaded as the save.
+    protected static final String TEXT_EXPORT_FILE = "export.txt";
+    protected static final String REPLAY_DIR = "replays";
+
+    public static final int TICK_MILLIS = 50;
+    private static final int ENEMY_MOVE_MILLIS = 750;
+    //  How many steps away enemies notice the player from
+    private static final int CHASE_RADIUS = 12;
+    public static final char NO_INPUT = 0;
+    private static final int PLAYER = 0;
+    //  Largest window of the world shown at once, in tiles. Worlds made from just a seed always fit.
+    private static final int VIEW_WIDTH_MAX = WorldGenerator.DEFAULT_WIDTH_MAX;
+    private static final int VIEW_HEIGHT_MAX = WorldGenerator.DEFAULT_HEIGHT_MAX;
+
+    public enum Outcome {
+        ONGOING, WON, LOST, QUIT
+    }
+
+    /*  Binary save layout, big-endian:
+        header : magic, version, width, height, seed (long), rng state (long), rng call count, roomNum,
+                 food eaten by player, food eaten by enemies, number of enemies, number of foods
+        cells  : width * height status bytes, row by row from y = 0, same order as CellBoard
+        avatars: x, y, full health, health of the player, then every enemy, then every food
+    */
+    private static final int SAVE_MAGIC = 0x42594F57;
+    private static final int SAVE_VERSION = 1;
+    private static final int SAVE_HEADER_BYTES = 10 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int AVATAR_RECORD_BYTES = 4 * Integer.BYTES;
 
 
     private int width;
     private int height;
-    private int roomSideLengthMin = DEFAULT_ROOM_SIDE_LENGTH_MIN;
-    private int roomSideLengthMax;
-    private int structureDistanceMin = DEFAULT_STRUCTURE_DISTANCE_MIN;
-    private int roomNumMax;
-    // assuming average room is 5*5 and takes up at most half of the board area, thus width * height / 98 below
     private int roomNum;
 
     protected final TETile boundary = Tileset.WALL;
@@ -35,25 +60,59 @@ public class World {
     protected TETile playerTile = Tileset.PLAYER;
     protected TETile enemyTile = Tileset.ENEMY;
     protected TETile foodTile = Tileset.FOOD;
+    // tilePalette[status] is the tile drawn for a cell of that status
+    private TETile[] tilePalette;
 
     private TERenderer ter = new TERenderer();
-    protected TETile[][] board;
-    protected short[][] boardStatus;
+    private Camera camera;
+    protected CellBoard board;
     private long seed;
+    // whether this world can be rebuilt from its seed (and, if sizeFromSeed, without being told its size)
+    private boolean generatedFromSeed = false;
+    private boolean sizeFromSeed = false;
     private RandomAssumedOnlyGeneratingIntJustForFileSaving random;
-    private boolean isGameOver = false;
-    private long prevActionTime;
-
-    private Avatar player;
-    private Avatar[] enemies;
-    private Avatar[] foods;
+    private SaveJournal journal;
+    private Outcome outcome = Outcome.ONGOING;
+    private boolean awaitingQuitKey = false;
+    private long tick = 0;
+    private int tickMillis = TICK_MILLIS;
+    private SimulationClock clock = new VirtualClock();
+    // clock time as of the end of the last step, to tell when ENEMY_MOVE_MILLIS boundaries are crossed
+    private long lastStepMillis = 0;
+    private ReplayLog replay;
+    // still exactly the world its seed generates, so a replay of it can start from the seed alone
+    private boolean atSeedStart = false;
+    private boolean savesOnQuit = true;
+    // whether runGame() records the game to REPLAY_DIR, off unless asked for
+    private boolean recordsReplays = false;
+
+    private CollisionGrid collisions;
+    // resolveCollisions() gathers the avatars of a cell here
+    private int[] cellAvatars;
+    private FlowField pursuit;
+    // floor nothing has spawned on yet, only kept while populate() spawns avatars
+    private FreeCellIndex freeCells;
+    // the player is avatar PLAYER, enemies are the enemyNum after it, foods the foodNum after those
+    private EntityStore entities;
+    private int enemyNum;
+    private int foodNum;
     private int numOfFoodEatenByPlayer = 0;
     private int numOfFoodEatenByEnemies = 0;
 
 
-    protected class RandomAssumedOnlyGeneratingIntJustForFileSaving extends Random {
+    /*  Same numbers as java.util.Random with the same seed, but it runs the 48-bit generator itself so
+        the state can be saved and put back directly, instead of replaying numOfCalls calls on load.
+        numOfCalls is still counted so older saves (seed and call count only) can be resumed.
+    */
+    protected static class RandomAssumedOnlyGeneratingIntJustForFileSaving extends Random {
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long ADDEND = 0xBL;
+        private static final long MASK = (1L << 48) - 1;
+
         String seed;
         int numOfCalls;
+        // no initializer on purpose: Random's constructor sets it through setSeed() before ours runs
+        private long state;
 
         public RandomAssumedOnlyGeneratingIntJustForFileSaving(long seed) {
             super(seed);
@@ -61,115 +120,85 @@ public class World {
             numOfCalls = 0;
         }
 
+        @Override
+        public synchronized void setSeed(long newSeed) {
+            super.setSeed(newSeed);
+            state = (newSeed ^ MULTIPLIER) & MASK;
+        }
+
+        @Override
+        protected int next(int bits) {
+            state = (state * MULTIPLIER + ADDEND) & MASK;
+            return (int) (state >>> (48 - bits));
+        }
+
         @Override
         public int nextInt() {
             numOfCalls++;
             return super.nextInt();
         }
-        @Override
-        public String toString() {
-            return seed + "\t" + numOfCalls;
-        }
-    }
-
-    private class StructRecord {
-        int fromX;
-        int fromY;
-        int toX;
-        int toY;
-        int grownFromAsHallway;
-        ArrayList<Direction> outwardDirections;
-
-        public StructRecord(int fx, int fy, int tx, int ty, int rg) {
-            grownFromAsHallway = rg;
-            fromX = fx;
-            fromY = fy;
-            toX = tx;
-            toY = ty;
-            outwardDirections = new ArrayList<>();
-            if (fromX - structureDistanceMin > 2) {
-                outwardDirections.add(Direction.LEFT);
-            }
-            if (fromY - structureDistanceMin > 2) {
-                outwardDirections.add(Direction.DOWN);
-            }
-            if (toX + structureDistanceMin < width - 2) {
-                outwardDirections.add(Direction.RIGHT);
-            }
-            if (toY + structureDistanceMin < height - 2) {
-                outwardDirections.add(Direction.UP);
+
+        public long getState() {
+            return state;
+        }
+
+        //  The state after draws more calls to next(), from state, in O(log draws) steps
+        protected static long advance(long state, long draws) {
+            long multiplier = 1,
+                addend = 0,
+                stepMultiplier = MULTIPLIER,
+                stepAddend = ADDEND;
+            for (; draws > 0; draws >>>= 1) {
+                if ((draws & 1) != 0) {
+                    multiplier *= stepMultiplier;
+                    addend = addend * stepMultiplier + stepAddend;
+                }
+                stepAddend *= stepMultiplier + 1;
+                stepMultiplier *= stepMultiplier;
             }
+            return (state * multiplier + addend) & MASK;
         }
 
-        public StructRecord(int fx, int fy, int tx, int ty) {
-            this(fx, fy, tx, ty, -1);
+        //  What nextInt() returns when it leaves the generator at state
+        protected static int intAt(long state) {
+            return (int) (state >>> 16);
         }
 
-        public static int distX(StructRecord struct1, StructRecord struct2) {
-            return Math.max(0, Math.max(struct1.toX, struct2.toX) - Math.min(struct1.fromX, struct2.fromX)
-                    - (struct1.toX - struct1.fromX + struct2.toX - struct2.fromX));
+        //  Jumps past draws calls of nextInt() as if they had been made
+        protected void skip(long draws) {
+            state = advance(state, draws);
+            numOfCalls += (int) draws;
         }
 
-        public static int distY(StructRecord struct1, StructRecord struct2) {
-            return Math.max(0, Math.max(struct1.toY, struct2.toY) - Math.min(struct1.fromY, struct2.fromY)
-                    - (struct1.toY - struct1.fromY + struct2.toY - struct2.fromY));
+        public void restoreState(long savedState, int savedNumOfCalls) {
+            state = savedState & MASK;
+            numOfCalls = savedNumOfCalls;
         }
-    }
 
+        @Override
+        public String toString() {
+            return seed + "\t" + numOfCalls + "\t" + state;
+        }
+    }
 
     /**  Constructors below */
-    public World(int w, int h, long inputSeed) {
-        width = w;
-        height = h;
+    public World(int w, int h, long inputSeed, String playerImageFile) {
         seed = inputSeed;
         random = new RandomAssumedOnlyGeneratingIntJustForFileSaving(seed);
-        board = new TETile[width][height];
-        roomSideLengthMax = Math.max(Math.min(width, height) / 3, roomSideLengthMin);
-        roomNumMax = width * height / 98;
-        roomNum = 0;
-        board = generateBoard();
-        getStatusFromBoard(board);
-        player = new Avatar(this, 5, Avatar.EntityType.PLAYER, playerTile);
-        enemies = new Avatar[(int) (roomNum / 1.5)];
-        foods = new Avatar[roomNum];
-        for (int i = 0; i < enemies.length; i++) {
-            enemies[i] = new Avatar(this, 2, Avatar.EntityType.ENEMY, enemyTile);
-        }
-        for (int i = 0; i < roomNum; i++) {
-            foods[i] = new Avatar(this, 1, Avatar.EntityType.FOOD, foodTile);
-        }
-        Avatar.drawOnBoard(player, board);
-        Avatar.drawOnBoard(enemies, board);
-        Avatar.drawOnBoard(foods, board);
-        getStatusFromBoard(board);
+        playerTile = new TETile(playerTile, playerImageFile);
+        populate(new WorldGenerator(w, h, random));
+    }
+
+    public World(int w, int h, long inputSeed) {
+        this(w, h, inputSeed, null);
     }
 
     public World(long inputSeed, String playerImageFile) {
         seed = inputSeed;
         random = new RandomAssumedOnlyGeneratingIntJustForFileSaving(seed);
-        width = random.nextInt(DEFAULT_WIDTH_MIN, DEFAULT_WIDTH_MAX);
-        height = random.nextInt(DEFAULT_HEIGHT_MIN, DEFAULT_HEIGHT_MAX);
-        //  width = DEFAULT_WIDTH_MAX; height = DEFAULT_HEIGHT_MAX;
-        board = new TETile[width][height];
-        roomSideLengthMax = Math.max(Math.min(width, height) / 3, roomSideLengthMin);
-        roomNumMax = width * height / 98;
-        roomNum = 0;
-        board = generateBoard();
-        getStatusFromBoard(board);
         playerTile = new TETile(playerTile, playerImageFile);
-        player = new Avatar(this, 5, Avatar.EntityType.PLAYER, playerTile);
-        enemies = new Avatar[(int) (roomNum / 1.5)];
-        foods = new Avatar[roomNum];
-        for (int i = 0; i < enemies.length; i++) {
-            enemies[i] = new Avatar(this, 2, Avatar.EntityType.ENEMY, enemyTile);
-        }
-        for (int i = 0; i < roomNum; i++) {
-            foods[i] = new Avatar(this, 1, Avatar.EntityType.FOOD, foodTile);
-        }
-        Avatar.drawOnBoard(player, board);
-        Avatar.drawOnBoard(enemies, board);
-        Avatar.drawOnBoard(foods, board);
-        getStatusFromBoard(board);
+        sizeFromSeed = true;
+        populate(new WorldGenerator(random));
     }
 
     public World(long inputSeed) {
@@ -177,483 +206,100 @@ public class World {
     }
 
     public World(String filename, String playerImageFile) {
-        String[] fileContent = FileUtils.readFile(filename).split("\n");
-        this.width = Integer.parseInt(fileContent[0]);
-        this.height = Integer.parseInt(fileContent[1]);
-        String[] lineSplit = fileContent[2].split("\t");
-        this.random = new RandomAssumedOnlyGeneratingIntJustForFileSaving(Long.parseLong(lineSplit[0]));
-        for (int i = Integer.parseInt(lineSplit[1]); i > 0; i--) {
-            random.nextInt();
-        }
-        this.board = loadBoard(filename);
-        getStatusFromBoard(board);
         playerTile = new TETile(playerTile, playerImageFile);
-        int lineIndex = height + 3;
-        lineSplit = fileContent[lineIndex].split("\t");
-        this.roomNum = Integer.parseInt(lineSplit[0]);
-        this.numOfFoodEatenByPlayer = Integer.parseInt(lineSplit[1]);
-        this.numOfFoodEatenByEnemies = Integer.parseInt(lineSplit[2]);
-        lineSplit = fileContent[++lineIndex].split("\t");
-        this.player = new Avatar(this, Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2]),
-                Integer.parseInt(lineSplit[3]), Integer.parseInt(lineSplit[4]), Avatar.EntityType.PLAYER, playerTile);
-        this.enemies = new Avatar[(int) (roomNum / 1.5)];
-        this.foods = new Avatar[roomNum];
-        for (int i = 0; i < enemies.length; i++) {
-            lineIndex++;
-            lineSplit = fileContent[lineIndex].split("\t");
-            enemies[i] = new Avatar(this, Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2]),
-                Integer.parseInt(lineSplit[3]), Integer.parseInt(lineSplit[4]), Avatar.EntityType.ENEMY, enemyTile);
-            if (enemies[i].getHealth() == 0) {
-                enemies[i].die();
-            }
-        }
-        for (int i = 0; i < roomNum; i++) {
-            lineIndex++;
-            lineSplit = fileContent[lineIndex].split("\t");
-            foods[i] = new Avatar(this, Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2]),
-                    Integer.parseInt(lineSplit[3]), Integer.parseInt(lineSplit[4]), Avatar.EntityType.FOOD, foodTile);
-            if (foods[i].getHealth() == 0) {
-                foods[i].die();
-            }
+        ByteBuffer saved = FileUtils.mapFile(filename);
+        if (saved.remaining() >= Integer.BYTES && saved.getInt(0) == SAVE_MAGIC) {
+            loadBinary(saved);
+        } else {
+            loadText(FileUtils.readFile(filename).split("\n"));
         }
-        getStatusFromBoard(board);
+        tilePalette = makeTilePalette();
+        buildCollisionGrid();
     }
 
     public World(String filename) {
         this(filename, null);
     }
 
-    /*  boardStatus[x][y] being:
-        0 : Nothing is here, it's the ambient space.
-        1 : Boundary of the map.
-        2 : Interior of the map, where entities can stay.
-        3 : Player is here.
-        4 : There's an enemy here.
-        5 : There's a food here.
-    */
-    private void getStatusFromBoard(TETile[][] tiles) {
-        boardStatus = new short[width][height];
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (tiles[x][y].equals(boundary)) {
-                    boardStatus[x][y] = 1;
-                } else if (tiles[x][y].equals(interior)) {
-                    boardStatus[x][y] = 2;
-                } else if (tiles[x][y].equals(playerTile)) {
-                    boardStatus[x][y] = 3;
-                } else if (tiles[x][y].equals(enemyTile)) {
-                    boardStatus[x][y] = 4;
-                } else if (tiles[x][y].equals(foodTile)) {
-                    boardStatus[x][y] = 5;
-                } else {
-                    boardStatus[x][y] = 0;
-                }
-            }
-        }
+    public static boolean hasSavedGame(String directory) {
+        return FileUtils.fileExists(savePath(directory, JOURNAL_FILE))
+                || FileUtils.fileExists(savePath(directory, LEGACY_SAVE_FILE));
     }
 
-
-    /**  World generating methods below. Til generateBoard()    */
-    private void fillTiles(TETile[][] tiles, TETile tileType, int startX, int startY, int fillWidth, int fillHeight) {
-        int endX = startX + fillWidth,
-            endY = startY + fillHeight;
-        for (int x = startX; x < endX; x++) {
-            for (int y = startY; y < endY; y++) {
-                tiles[x][y] = tileType;
-            }
-        }
-    }
-    private void fillTiles(TETile[][] tiles, TETile tileType) {
-        fillTiles(tiles, tileType, 0, 0, tiles.length, tiles[0].length);
+    public static boolean hasSavedGame() {
+        return hasSavedGame(SAVE_DIRECTORY);
     }
 
-    private void fillTiles2(TETile[][] tiles, TETile tileType, int x1, int y1, int x2, int y2) {
-        int fromX = Math.min(x1, x2),
-            fromY = Math.min(y1, y2),
-            toX = Math.max(x1, x2) + 1,
-            toY = Math.max(y1, y2) + 1;
-        for (int x = fromX; x < toX; x++) {
-            for (int y = fromY; y < toY; y++) {
-                tiles[x][y] = tileType;
-            }
+    /*  The game saveGame() last saved to the directory, from JOURNAL_FILE, or from LEGACY_SAVE_FILE if
+        it has never saved there. Saving a game loaded from the old save starts the journal next to it.
+    */
+    public static World loadSavedGame(String directory, String playerImageFile) {
+        String journalFile = savePath(directory, JOURNAL_FILE),
+               legacyFile = savePath(directory, LEGACY_SAVE_FILE);
+        if (FileUtils.fileExists(journalFile)) {
+            return SaveJournal.load(journalFile, playerImageFile);
+        }
+        if (!FileUtils.fileExists(legacyFile)) {
+            throw new IllegalStateException("There's no saved game to load.");
         }
+        World world = new World(legacyFile, playerImageFile);
+        world.enableJournal(journalFile);
+        return world;
     }
 
-    private void fillBooleans(boolean[][] booleans, boolean bool, int x1, int y1, int x2, int y2) {
-        int fromX = Math.min(x1, x2),
-                fromY = Math.min(y1, y2),
-                toX = Math.max(x1, x2) + 1,
-                toY = Math.max(y1, y2) + 1;
-        for (int x = fromX; x < toX; x++) {
-            for (int y = fromY; y < toY; y++) {
-                booleans[x][y] = bool;
-            }
-        }
+    public static World loadSavedGame(String playerImageFile) {
+        return loadSavedGame(SAVE_DIRECTORY, playerImageFile);
     }
 
-    private void createRoom(TETile[][] tiles, TETile boundaryTileType, TETile interiorTileType,
-                            int startX, int startY, int roomWidth, int roomHeight) {
-        fillTiles(tiles, boundaryTileType,
-                startX, startY, roomWidth, roomHeight);
-        fillTiles(tiles, interiorTileType,
-                startX + 1, startY + 1, roomWidth - 2, roomHeight - 2);
-    }
-
-    private void tryCreateHallway(TETile[][] tiles, boolean[][] roomOccupation, boolean[][] hallwayOccupation,
-                                  ArrayList<StructRecord> rooms, ArrayList<StructRecord> hallways,
-                                  DisjointSet roomConnection, Random rdm) {
-        int fromRoomIndex = Math.floorMod(rdm.nextInt(), rooms.size());
-        StructRecord fromRoom = rooms.get(fromRoomIndex);
-        Direction direction =
-                fromRoom.outwardDirections.get(Math.floorMod(rdm.nextInt(), fromRoom.outwardDirections.size()));
-        int hallwayCenterFromX = 0,
-            hallwayCenterFromY = 0;
-        switch (direction) {
-            case RIGHT -> {
-                hallwayCenterFromX = fromRoom.toX;
-                hallwayCenterFromY = rdm.nextInt(fromRoom.fromY + 1, fromRoom.toY - 1);
-            }
-            case UP -> {
-                hallwayCenterFromX = rdm.nextInt(fromRoom.fromX + 1, fromRoom.toX - 1);
-                hallwayCenterFromY = fromRoom.toY;
-            }
-            case LEFT -> {
-                hallwayCenterFromX = fromRoom.fromX - 1;
-                hallwayCenterFromY = rdm.nextInt(fromRoom.fromY + 1, fromRoom.toY - 1);
-            }
-            case DOWN -> {
-                hallwayCenterFromX = rdm.nextInt(fromRoom.fromX + 1, fromRoom.toX - 1);
-                hallwayCenterFromY = fromRoom.fromY - 1;
-            }
-            default -> {
-                return;
-            }
-        }
-        int currentX = hallwayCenterFromX,
-            currentY = hallwayCenterFromY;
-        while (true) {
-            short growStatus = tryGrowInDirection(currentX, currentY, direction, roomOccupation, hallwayOccupation);
-            if (growStatus == 0) {
-                return;
-            }
-            if (growStatus == 1) {
-                switch (direction) {
-                    case RIGHT -> currentX++;
-                    case UP -> currentY++;
-                    case LEFT -> currentX--;
-                    case DOWN -> currentY--;
-                    default -> {
-                        return;
-                    }
-                }
-            }
-            if (growStatus == 2 || growStatus == 3) {
-                hallways.add(growActualHallway(tiles, hallwayOccupation, direction,
-                        hallwayCenterFromX, hallwayCenterFromY, currentX, currentY, fromRoomIndex));
-                if (growStatus == 2) {
-                    int connectedRoomIndex = getIndexOfConnectedRoom(currentX, currentY, rooms);
-                    roomConnection.connect(fromRoomIndex, connectedRoomIndex);
-                } else {
-                    int connectedHallwayIndex = getIndexOfConnectedRoom(currentX, currentY, hallways);
-                    roomConnection.connect(fromRoomIndex, hallways.get(connectedHallwayIndex).grownFromAsHallway);
-                }
-                return;
-            }
-        }
+    private static String savePath(String directory, String filename) {
+        return new File(directory, filename).getPath();
     }
 
-    /*  return 0 : Can't handle the situation easily
-        return 1 : Nothing's in front, just grow normally
-        return 2 : There's a room I can grow into in front
-        return 3 : There's another hallway in front that I'm intersecting transversally
-    */
-    private short tryGrowInDirection(int currentCenterX, int currentCenterY, Direction direction,
-                                     boolean[][] roomOccupation, boolean[][] hallwayOccupation) {
-        boolean[] temp = new boolean[3];
-        if (direction == Direction.UP || direction == Direction.DOWN) {
-            if ((direction == Direction.UP && currentCenterY == roomOccupation[0].length - 1)
-                || (direction == Direction.DOWN && currentCenterY == 0)) {
-                return 0;
-            }
-            for (int i = 0; i < 3; i++) {
-                temp[i] = roomOccupation[currentCenterX + i - 1][currentCenterY];
-            }
-            if (temp[0] && temp[1] && temp[2]) {
-                return 2;
-            } else if (!temp[0] && !temp[1] && !temp[2]) {
-                for (int i = 0; i < 3; i++) {
-                    temp[i] = hallwayOccupation[currentCenterX + i - 1][currentCenterY];
-                }
-                if (temp[0] && temp[1] && temp[2]) {
-                    return 3;
-                } else if (!temp[0] && !temp[1] && !temp[2]) {
-                    return 1;
-                }
-            }
-        } else if (direction == Direction.RIGHT || direction == Direction.LEFT) {
-            if ((direction == Direction.RIGHT && currentCenterX == roomOccupation.length - 1)
-                || (direction == Direction.LEFT && currentCenterX == 0)) {
-                return 0;
-            }
-            System.arraycopy(roomOccupation[currentCenterX], currentCenterY - 1, temp, 0, 3);
-            if (temp[0] && temp[1] && temp[2]) {
-                return 2;
-            } else if (!temp[0] && !temp[1] && !temp[2]) {
-                System.arraycopy(hallwayOccupation[currentCenterX], currentCenterY - 1, temp, 0, 3);
-                if (temp[0] && temp[1] && temp[2]) {
-                    return 3;
-                } else if (!temp[0] && !temp[1] && !temp[2]) {
-                    return 1;
-                }
-            }
+    //  Generates the board and spawns everything on it. Changes to the board are tracked from here on.
+    private void populate(WorldGenerator generator) {
+        generatedFromSeed = true;
+        width = generator.getWidth();
+        height = generator.getHeight();
+        board = generator.generateBoard();
+        roomNum = generator.getRoomNum();
+        freeCells = new FreeCellIndex(board, CellBoard.INTERIOR);
+        enemyNum = (int) (roomNum / 1.5);
+        foodNum = roomNum;
+        entities = new EntityStore(this, 1 + enemyNum + foodNum);
+        entities.spawn(5, CellBoard.PLAYER, freeCells, random);
+        for (int i = 0; i < enemyNum; i++) {
+            entities.spawn(2, CellBoard.ENEMY, freeCells, random);
         }
-        return 0;
-    }
-
-
-    //  The only reason for separating this method from tryCreateHallway() is to pass style check (it's too long)
-    private StructRecord growActualHallway(TETile[][] tiles, boolean[][] hallwayOccupation, Direction direction,
-                                           int hallwayCenterFromX, int hallwayCenterFromY, int currentX, int currentY,
-                                           int fromRoomIndex) {
-        int hallwayLength = (direction == Direction.UP || direction == Direction.DOWN)
-                ? Math.abs(currentY - hallwayCenterFromY) : Math.abs(currentX - hallwayCenterFromX);
-        switch (direction) {
-            case RIGHT -> {
-                fillTiles(tiles, boundary,
-                        hallwayCenterFromX, hallwayCenterFromY - 1, hallwayLength, 3);
-                fillTiles(tiles, interior,
-                        hallwayCenterFromX - 1, hallwayCenterFromY, hallwayLength + 2, 1);
-                for (int x = hallwayCenterFromX; x < currentX; x++) {
-                    for (int y = hallwayCenterFromY - 1; y < hallwayCenterFromY + 2; y++) {
-                        hallwayOccupation[x][y] = true;
-                    }
-                }
-                return (new StructRecord(hallwayCenterFromX, hallwayCenterFromY - 1,
-                        currentX, hallwayCenterFromY + 2, fromRoomIndex));
-            }
-            case UP -> {
-                fillTiles(tiles, boundary,
-                        hallwayCenterFromX - 1, hallwayCenterFromY, 3, hallwayLength);
-                fillTiles(tiles, interior,
-                        hallwayCenterFromX, hallwayCenterFromY - 1, 1, hallwayLength + 2);
-                for (int x = hallwayCenterFromX - 1; x < hallwayCenterFromX + 2; x++) {
-                    for (int y = hallwayCenterFromY; y < currentY; y++) {
-                        hallwayOccupation[x][y] = true;
-                    }
-                }
-                return (new StructRecord(hallwayCenterFromX - 1, hallwayCenterFromY,
-                        hallwayCenterFromX + 2, currentY, fromRoomIndex));
-            }
-            case LEFT -> {
-                fillTiles(tiles, boundary,
-                        currentX + 1, hallwayCenterFromY - 1, hallwayLength, 3);
-                fillTiles(tiles, interior,
-                        currentX, hallwayCenterFromY, hallwayLength + 2, 1);
-                for (int x = currentX + 1; x < hallwayCenterFromX + 1; x++) {
-                    for (int y = hallwayCenterFromY - 1; y < hallwayCenterFromY + 2; y++) {
-                        hallwayOccupation[x][y] = true;
-                    }
-                }
-                return (new StructRecord(currentX + 1, hallwayCenterFromY - 1,
-                        hallwayCenterFromX + 1, hallwayCenterFromY + 2, fromRoomIndex));
-            }
-            case DOWN -> {
-                fillTiles(tiles, boundary,
-                        hallwayCenterFromX - 1, currentY + 1, 3, hallwayLength);
-                fillTiles(tiles, interior,
-                        hallwayCenterFromX, currentY, 1, hallwayLength + 2);
-                for (int x = hallwayCenterFromX - 1; x < hallwayCenterFromX + 2; x++) {
-                    for (int y = currentY + 1; y < hallwayCenterFromY + 1; y++) {
-                        hallwayOccupation[x][y] = true;
-                    }
-                }
-                return (new StructRecord(hallwayCenterFromX - 1, currentY + 1,
-                        hallwayCenterFromX + 2, hallwayCenterFromY + 1, fromRoomIndex));
-            }
-            default -> {
-                return null;
-            }
+        for (int i = 0; i < foodNum; i++) {
+            entities.spawn(1, CellBoard.FOOD, freeCells, random);
         }
+        freeCells = null;
+        tilePalette = makeTilePalette();
+        buildCollisionGrid();
+        board.trackChanges();
+        atSeedStart = true;
     }
 
-    private int getIndexOfConnectedRoom(int coveredX, int coveredY, ArrayList<StructRecord> rooms) {
-        for (int i = 0; i < rooms.size(); i++) {
-            StructRecord room = rooms.get(i);
-            if (room.fromX <= coveredX && coveredX < room.toX
-                && room.fromY <= coveredY && coveredY < room.toY) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    private boolean forceConnect(TETile[][] tiles, StructRecord isolatedRoom, StructRecord helpRoom, int iso, int help,
-                                 boolean[][] hallwayOccupation, boolean[][] roomOccupation, ArrayList<StructRecord> h) {
-        boolean helpRoomIsLeft = helpRoom.toX < isolatedRoom.toX,
-                helpRoomIsBelow = helpRoom.toY < isolatedRoom.toY;
-        int isoHallwayX = (isolatedRoom.fromX + isolatedRoom.toX) / 2,
-            isoHallwayY = helpRoomIsBelow ? isolatedRoom.fromY - 1 : isolatedRoom.toY,
-            helpHallwayX = helpRoomIsLeft ? helpRoom.toX : helpRoom.fromX - 1,
-            helpHallwayY = (helpRoom.fromY + helpRoom.toY) / 2,
-            auxVertical = helpRoomIsBelow ? -1 : 1,
-            auxHorizontal = helpRoomIsLeft ? -1 : 1,
-            verFromX = isoHallwayX - 1,
-            verFromY = Math.min(isoHallwayY, helpHallwayY + auxVertical),
-            verToX = isoHallwayX + 1,
-            verToY = Math.max(isoHallwayY, helpHallwayY + auxVertical),
-            horFromX = Math.min(helpHallwayX, isoHallwayX - auxHorizontal),
-            horFromY = helpHallwayY - 1,
-            horToX = Math.max(helpHallwayX, isoHallwayX - auxHorizontal),
-            horToY = helpHallwayY + 1;
-        if (verFromX < 0 || horFromX < 0 || verFromY < 0 || horFromY < 0
-                || verToX >= width || horToX >= width || verToY >= height || horToY >= height) {
-            return false;
-        }
-        for (int x = verFromX; x < verToX; x++) {
-            for (int y = verFromY; y < verToY; y++) {
-                if (roomOccupation[x][y] || hallwayOccupation[x][y]) {
-                    return false;
-                }
-            }
-        }
-        for (int x = horFromX; x < horToX; x++) {
-            for (int y = horFromY; y < horToY; y++) {
-                if (roomOccupation[x][y] || hallwayOccupation[x][y]) {
-                    return false;
-                }
-            }
-        }
-        h.add(new StructRecord(verFromX, verFromY, verToX + 1, verToY + 1, iso));
-        h.add(new StructRecord(horFromX, horFromY, horToX + 1, horToY + 1, help));
-        fillTiles2(tiles, boundary, verFromX, verFromY, verToX, verToY);
-        fillTiles2(tiles, boundary, horFromX, horFromY, horToX, horToY);
-        fillTiles2(tiles, interior, isoHallwayX, isoHallwayY - auxVertical, isoHallwayX, helpHallwayY);
-        fillTiles2(tiles, interior, helpHallwayX + auxHorizontal, helpHallwayY, isoHallwayX, helpHallwayY);
-        fillBooleans(hallwayOccupation, true, verFromX, verFromY, verToX, verToY);
-        fillBooleans(hallwayOccupation, true, horFromX, horFromY, horToX, horToY);
-        return true;
-    }
-
-    private TETile[][] generateBoard() {
-        TETile[][] tileBoard = new TETile[width][height];
-        fillTiles(tileBoard, Tileset.NOTHING);
-        boolean[][] kindOfFakeRoomOccupation = new boolean[width][height],
-                    tileOccupiedByRoom = new boolean[width][height],
-                    tileOccupiedByHallway = new boolean[width][height];
-        ArrayList<StructRecord> rooms = new ArrayList<>(),
-                              hallways = new ArrayList<>();
-        loopOfRoomCreatingTries:
-        for (int tryNum = 0; roomNum < roomNumMax && tryNum < 2 * roomNumMax; tryNum++) {
-            int nextRoomFromX = random.nextInt(width - 4),
-                nextRoomFromY = random.nextInt(height - 4),
-                nextRoomWidth = random.nextInt(roomSideLengthMin, roomSideLengthMax + 1),
-                nextRoomHeight = random.nextInt(roomSideLengthMin, roomSideLengthMax + 1),
-                nextRoomToX = nextRoomFromX + nextRoomWidth,
-                nextRoomToY = nextRoomFromY + nextRoomHeight;
-            if (nextRoomToX >= width || nextRoomToY >= height) {
-                continue;
-            }
-            for (int x = nextRoomFromX; x < nextRoomToX; x++) {
-                for (int y = nextRoomFromY; y < nextRoomToY; y++) {
-                    if (kindOfFakeRoomOccupation[x][y]) {
-                        continue loopOfRoomCreatingTries;
-                    }
-                }
-            }
-            createRoom(tileBoard, boundary, interior, nextRoomFromX, nextRoomFromY, nextRoomWidth, nextRoomHeight);
-            rooms.add(new StructRecord(nextRoomFromX, nextRoomFromY, nextRoomToX, nextRoomToY));
-            for (int x = nextRoomFromX; x < nextRoomToX; x++) {
-                for (int y = nextRoomFromY; y < nextRoomToY; y++) {
-                    tileOccupiedByRoom[x][y] = true;
-                }
-            }
-            nextRoomFromX -= Math.min(nextRoomFromX, structureDistanceMin);
-            nextRoomFromY -= Math.min(nextRoomFromY, structureDistanceMin);
-            nextRoomToX += Math.min(width - nextRoomToX - 1, structureDistanceMin);
-            nextRoomToY += Math.min(height - nextRoomToY - 1, structureDistanceMin);
-            for (int x = nextRoomFromX; x < nextRoomToX; x++) {
-                for (int y = nextRoomFromY; y < nextRoomToY; y++) {
-                    kindOfFakeRoomOccupation[x][y] = true;
-                }
-            }
-            roomNum++;
-        }
-        DisjointSet roomConnection = new DisjointSet(roomNum);
-        long hallwayTime = System.currentTimeMillis();
-        while (roomConnection.getConnenctedComponentNum() > 1 && System.currentTimeMillis() - hallwayTime < 20) {
-            tryCreateHallway(tileBoard, tileOccupiedByRoom, tileOccupiedByHallway,
-                    rooms, hallways, roomConnection, random);
-        }
-        fixHallway(tileBoard, roomConnection, rooms, hallways, tileOccupiedByHallway, tileOccupiedByRoom);
-        return tileBoard;
-    }
-
-    private void fixHallway(TETile[][] tileBoard, DisjointSet roomConnection, ArrayList<StructRecord> rooms,
-                            ArrayList<StructRecord> hallways, boolean[][] tileOccupiedByHallway,
-                            boolean[][] tileOccupiedByRoom) {
-        while (roomConnection.getConnenctedComponentNum() > 1) {
-            for (int isoIndex = 0; isoIndex < roomNum; isoIndex++) {
-                int compNumAtIndex = roomConnection.componentSize(isoIndex);
-                if (compNumAtIndex <= roomNum / 2) {
-                    boolean[] marked = new boolean[roomNum];
-                    StructRecord isolatedRoom = rooms.get(isoIndex);
-                    while (roomConnection.componentSize(isoIndex) == compNumAtIndex) {
-                        int helpRoomIndex = -1,
-                            minDistX = width;
-                        for (int i = 0; i < roomNum; i++) {
-                            int dist = StructRecord.distX(isolatedRoom, rooms.get(i));
-                            if (!marked[i] && !roomConnection.isConnected(i, isoIndex) && dist < minDistX) {
-                                helpRoomIndex = i;
-                                minDistX = dist;
-                            }
-                        }
-                        if (helpRoomIndex == -1) {
-                            break;
-                        }
-                        marked[helpRoomIndex] = true;
-                        if (forceConnect(tileBoard, isolatedRoom, rooms.get(helpRoomIndex), isoIndex, helpRoomIndex,
-                                tileOccupiedByHallway, tileOccupiedByRoom, hallways)) {
-                            roomConnection.connect(isoIndex, helpRoomIndex);
-                        }
-                    }
-                }
-            }
-            for (int isoIndex = 0; isoIndex < roomNum; isoIndex++) {
-                int compNumAtIndex = roomConnection.componentSize(isoIndex);
-                if (compNumAtIndex <= roomNum / 2) {
-                    boolean[] marked = new boolean[roomNum];
-                    StructRecord isolatedRoom = rooms.get(isoIndex);
-                    while (roomConnection.componentSize(isoIndex) == compNumAtIndex) {
-                        int helpRoomIndex = -1,
-                            minDistY = height;
-                        for (int i = 0; i < roomNum; i++) {
-                            int dist = StructRecord.distY(isolatedRoom, rooms.get(i));
-                            if (!marked[i] && !roomConnection.isConnected(i, isoIndex) && dist < minDistY) {
-                                helpRoomIndex = i;
-                                minDistY = dist;
-                            }
-                        }
-                        if (helpRoomIndex == -1) {
-                            System.out.println("Seems we've run into some super tricky edge case.\n" + seed);
-                            System.exit(114514);
-                        }
-                        marked[helpRoomIndex] = true;
-                        if (forceConnect(tileBoard, rooms.get(helpRoomIndex), isolatedRoom, helpRoomIndex, isoIndex,
-                            tileOccupiedByHallway, tileOccupiedByRoom, hallways)) {
-                            roomConnection.connect(isoIndex, helpRoomIndex);
-                        }
-                    }
-                }
-            }
-        }
+    private TETile[] makeTilePalette() {
+        TETile[] palette = new TETile[CellBoard.STATUS_NUM];
+        palette[CellBoard.NOTHING] = Tileset.NOTHING;
+        palette[CellBoard.BOUNDARY] = boundary;
+        palette[CellBoard.INTERIOR] = interior;
+        palette[CellBoard.PLAYER] = playerTile;
+        palette[CellBoard.ENEMY] = enemyTile;
+        palette[CellBoard.FOOD] = foodTile;
+        return palette;
     }
-    /**  World generating methods above. From fillTiles(bla bla)    */
 
 
     /**  Screen rendering methods below, Til renderGameInfo()    */
-    private void renderScreen() {
+    protected void renderScreen() {
+        if (camera.follow(entities.getX(PLAYER), entities.getY(PLAYER))) {
+            bakeBackground();
+        }
         StdDraw.clear(Color.BLACK);
-        ter.drawTiles(board);
+        ter.drawBackground();
+        renderAvatarTiles();
         renderTilePointed();
         renderGameInfo();
         renderPlayerHealth();
@@ -661,36 +307,70 @@ public class World {
         ter.resetFont();
     }
 
+    /*  Walls and floors never change, so the camera's window of them is baked into the renderer's
+        background, again only when the camera jumps. The only cells that can show something else
+        are where an avatar is standing (the last one to step on a cell draws itself there, and
+        stepping off resets it to interior).
+    */
+    private void bakeBackground() {
+        TETile[] terrainPalette = tilePalette.clone();
+        terrainPalette[CellBoard.PLAYER] = interior;
+        terrainPalette[CellBoard.ENEMY] = interior;
+        terrainPalette[CellBoard.FOOD] = interior;
+        ter.setBackground(board.materialize(terrainPalette, camera.getX(), camera.getY(),
+                camera.getWidth(), camera.getHeight()), camera.getX(), camera.getY());
+    }
+
+    //  Avatars in the camera's window, found by their cells, so a frame costs the same however big the world is
+    private void renderAvatarTiles() {
+        byte[] cells = board.getCells();
+        for (int y = camera.getY(); y < camera.getY() + camera.getHeight(); y++) {
+            int row = y * width;
+            for (int x = camera.getX(); x < camera.getX() + camera.getWidth(); x++) {
+                byte status = cells[row + x];
+                if (status >= CellBoard.PLAYER) {
+                    ter.drawTile(tilePalette[status], x, y);
+                }
+            }
+        }
+    }
+
     private void renderTilePointed() {
-        int tileX = (int) Math.floor(StdDraw.mouseX()),
+        int viewWidth = camera.getWidth(),
+            viewHeight = camera.getHeight(),
+            tileX = (int) Math.floor(StdDraw.mouseX()),
             tileY = (int) Math.floor(StdDraw.mouseY()) - 1;
         StdDraw.setPenColor(255, 255, 255);
-        StdDraw.setFont(new Font("Comic Sans MS", Font.PLAIN, Math.min(width, height) / 2));
-        if (-1 < tileX && tileX < width && -1 < tileY && tileY < height) {
-            StdDraw.textRight(width, height + 1.5, "Pointing at: " + board[tileX][tileY].description());
+        StdDraw.setFont(new Font("Comic Sans MS", Font.PLAIN, Math.min(viewWidth, viewHeight) / 2));
+        if (-1 < tileX && tileX < viewWidth && -1 < tileY && tileY < viewHeight) {
+            byte status = board.get(camera.toWorldX(tileX), camera.toWorldY(tileY));
+            StdDraw.textRight(viewWidth, viewHeight + 1.5, "Pointing at: " + tilePalette[status].description());
         }
     }
 
     private void renderGameInfo() {
-        StdDraw.text(width / 2., height + 1.5, "Get >=75% of the java to win!");
+        int viewWidth = camera.getWidth(),
+            viewHeight = camera.getHeight();
+        StdDraw.text(viewWidth / 2., viewHeight + 1.5, "Get >=75% of the java to win!");
         // font still comic sans here
 
-        StdDraw.setFont(new Font("Calibri", Font.PLAIN, (int) (Math.min(width, height) / 2)));
-        StdDraw.textLeft(width + 2, height / 2. + 9, "Total cups of java:  " + roomNum);
-        StdDraw.textLeft(width + 2, height / 2. + 7, "You need to get:     " + (int) (Math.ceil(roomNum * .75)));
-        StdDraw.textLeft(width + 2, height / 2. + 5, "You've collected:    " + numOfFoodEatenByPlayer);
-        StdDraw.textLeft(width + 2, height / 2. + 3, "Enemies have got:  " + numOfFoodEatenByEnemies);
+        StdDraw.setFont(new Font("Calibri", Font.PLAIN, (int) (Math.min(viewWidth, viewHeight) / 2)));
+        StdDraw.textLeft(viewWidth + 2, viewHeight / 2. + 9, "Total cups of java:  " + roomNum);
+        StdDraw.textLeft(viewWidth + 2, viewHeight / 2. + 7, "You need to get:     " + (int) (Math.ceil(roomNum * .75)));
+        StdDraw.textLeft(viewWidth + 2, viewHeight / 2. + 5, "You've collected:    " + numOfFoodEatenByPlayer);
+        StdDraw.textLeft(viewWidth + 2, viewHeight / 2. + 3, "Enemies have got:  " + numOfFoodEatenByEnemies);
+        StdDraw.textLeft(viewWidth + 2, viewHeight / 2. - 1, "Save as text:        :T");
 
         StdDraw.setPenColor(Color.cyan);
-        StdDraw.line(width + .5, 0, width + .5, height + 2);
+        StdDraw.line(viewWidth + .5, 0, viewWidth + .5, viewHeight + 2);
     }
 
     private void renderPlayerHealth() {
-        StdDraw.setFont(new Font("Arail", Font.PLAIN, Math.min(width, height) / 2));
-        int health = player.getHealth();
+        StdDraw.setFont(new Font("Arail", Font.PLAIN, Math.min(camera.getWidth(), camera.getHeight()) / 2));
+        int health = entities.getHealth(PLAYER);
 
         double healthX = 0.5;
-        double healthY = height + 1.5;
+        double healthY = camera.getHeight() + 1.5;
 
         String hearts = "";
         for (int i = 0; i < health; i++) {
@@ -704,70 +384,198 @@ public class World {
 
     /**  Game running methods below. Til displayMessageAndExit()    */
     public void runGame() {
-        ter.initialize(width + 18, height + 3, 0, 1);
-        resetActionTime();
-        while (!isGameOver()) {
-            updateBoard();
-            renderScreen();
-            if (((double) numOfFoodEatenByPlayer) / roomNum >= .75) {
-                setGameOver(true);
-            }
-            if (player.isDead() || ((double) numOfFoodEatenByEnemies) / roomNum > .25) {
-                setGameOver(false);
-            }
+        camera = new Camera(VIEW_WIDTH_MAX, VIEW_HEIGHT_MAX, width, height);
+        camera.follow(entities.getX(PLAYER), entities.getY(PLAYER));
+        ter.initialize(camera.getWidth() + 18, camera.getHeight() + 3, 0, 1);
+        ter.setCamera(camera);
+        bakeBackground();
+        //  the avatar tiles, custom player image included, so their first frame isn't slower
+        TileAtlas.preload(tilePalette);
+        if (recordsReplays && canRecordReplay()) {
+            FileUtils.makeDirectories(REPLAY_DIR);
+            recordReplay(REPLAY_DIR + "/" + seed + "-" + System.currentTimeMillis() + ".replay");
+        }
+        Outcome result = new GameLoop().run(this);
+        if (result == Outcome.QUIT) {
+            System.exit(114);
         }
+        setGameOver(result == Outcome.WON);
     }
 
-    public void updateBoard() {
-        if (actionTime() > 750) {
-            resetActionTime();
-            Avatar.randomMove(enemies);
+    /*  Advances the game by one tick: enemies move if it's their turn (chasing the player if it's near
+        enough, wandering otherwise), then the input (NO_INPUT for none) is applied, then collisions.
+        Doesn't touch StdDraw, so games can be run without a screen.
+    */
+    public Outcome step(char input) {
+        if (outcome != Outcome.ONGOING) {
+            return outcome;
+        }
+        tick++;
+        advance(input);
+        if (replay != null) {
+            replay.afterStep(tick, input, outcome);
+        }
+        return outcome;
+    }
+
+    private void advance(char input) {
+        long prevMillis = lastStepMillis;
+        clock.advance(tickMillis);
+        lastStepMillis = clock.currentMillis();
+        if (lastStepMillis / ENEMY_MOVE_MILLIS > prevMillis / ENEMY_MOVE_MILLIS) {
+            pursuit.update(entities.getX(PLAYER), entities.getY(PLAYER));
+            entities.chaseOrWander(PLAYER + 1, PLAYER + 1 + enemyNum, pursuit);
+        }
+        if (applyInput(input) == Outcome.QUIT) {
+            return;
         }
-        if (StdDraw.hasNextKeyTyped()) {
-            handleKeyInput(String.valueOf(StdDraw.nextKeyTyped()));
+        for (int i = 0; i < collisions.contestedNum(); i++) {
+            resolveCollisions(collisions.contestedCell(i));
         }
-        for (Avatar food: foods) {
-            if (Avatar.collide(food, player)) {
-                numOfFoodEatenByPlayer++;
+        collisions.prune();
+        if (((double) numOfFoodEatenByPlayer) / roomNum >= .75) {
+            outcome = Outcome.WON;
+        } else if (entities.isDead(PLAYER) || ((double) numOfFoodEatenByEnemies) / roomNum > .25) {
+            outcome = Outcome.LOST;
+        }
+    }
+
+    /*  Collisions between the avatars sharing a cell, in the order a scan over every avatar would find
+        them: each food against the player then every enemy, then every enemy against the player.
+        Avatars on different cells can't affect each other, so cells are resolved one at a time.
+    */
+    private void resolveCollisions(int cell) {
+        int[] here = cellAvatars;
+        int num = collisions.sortedOn(cell, here);
+        for (int i = 0; i < num; i++) {
+            int f = here[i];
+            if (entities.getType(f) != CellBoard.FOOD) {
+                continue;
             }
-            for (Avatar enemy: enemies) {
-                if (Avatar.collide(food, enemy)) {
+            for (int j = 0; j < num; j++) {
+                byte type = entities.getType(here[j]);
+                if (type == CellBoard.PLAYER && entities.collide(f, PLAYER)) {
+                    numOfFoodEatenByPlayer++;
+                } else if (type == CellBoard.ENEMY && entities.collide(f, here[j])) {
                     numOfFoodEatenByEnemies++;
                 }
             }
         }
-        for (Avatar enemy: enemies) {
-            Avatar.collide(enemy, player);
+        if (here[0] == PLAYER) {
+            for (int i = 1; i < num; i++) {
+                if (entities.getType(here[i]) == CellBoard.ENEMY) {
+                    entities.collide(here[i], PLAYER);
+                }
+            }
+        }
+    }
+
+    //  Also sets up the flow field enemies chase the player along, both being built from the board and avatars
+    private void buildCollisionGrid() {
+        collisions = new CollisionGrid(width, height, entities);
+        cellAvatars = new int[entities.size()];
+        pursuit = new FlowField(board, CHASE_RADIUS);
+    }
+
+    /*  Applies one key without advancing the clock. ':' followed by 'q' or 'Q' saves the game and
+        quits, ':' followed by 't' or 'T' exports it as text and plays on, ':' followed by anything else
+        drops both. Keys that don't come through step() can't be replayed, so the world can't be
+        recorded after this.
+    */
+    protected Outcome handleInput(char input) {
+        if (input != NO_INPUT) {
+            atSeedStart = false;
         }
+        return applyInput(input);
     }
 
-    protected void handleKeyInput(String input) {
-        if (input.equals(":")) {
-            while (!StdDraw.hasNextKeyTyped()) {
-                continue;
-            }
-            if (String.valueOf(StdDraw.nextKeyTyped()).equalsIgnoreCase("Q")) {
-                saveGame();
-                System.exit(114);
+    private Outcome applyInput(char input) {
+        if (outcome != Outcome.ONGOING || input == NO_INPUT) {
+            return outcome;
+        }
+        if (awaitingQuitKey) {
+            awaitingQuitKey = false;
+            if (Character.toUpperCase(input) == 'Q') {
+                if (savesOnQuit) {
+                    saveGame();
+                }
+                outcome = Outcome.QUIT;
+            } else if (Character.toUpperCase(input) == 'T' && savesOnQuit) {
+                exportTextSave(TEXT_EXPORT_FILE);
             }
+            return outcome;
         }
-        if (input.equals(":Q") || input.equals(":q")) {
-            saveGame();
-            System.exit(114);
+        if (input == ':') {
+            awaitingQuitKey = true;
+            return outcome;
+        }
+        entities.tryMove(PLAYER, input);
+        return outcome;
+    }
+
+    //  Game time, in milliseconds by the world's clock. A VirtualClock unless setClock() says otherwise.
+    protected long currentMillis() {
+        return clock.currentMillis();
+    }
+
+    //  Takes the time from this clock from now on. Meant to be set before the first step.
+    public void setClock(SimulationClock simulationClock) {
+        if (replay != null) {
+            throw new IllegalStateException("Can't change the clock of a game being recorded.");
+        }
+        clock = simulationClock;
+        lastStepMillis = clock.currentMillis();
+    }
+
+    //  How much game time each tick from now on stands for. Enemies still move every ENEMY_MOVE_MILLIS.
+    protected void setTickMillis(int millis) {
+        tickMillis = millis;
+    }
+
+    protected int getTickMillis() {
+        return tickMillis;
+    }
+
+    //  Whether ':' 'Q' saves the game before quitting, and ':' 'T' exports it. Replays turn it off so
+    //  they don't overwrite saves.
+    protected void setSavesOnQuit(boolean saves) {
+        savesOnQuit = saves;
+    }
+
+    //  Whether runGame() records the game to a new file in REPLAY_DIR
+    public void setRecordsReplays(boolean records) {
+        recordsReplays = records;
+    }
+
+    /*  A replay has to start from the world as its seed generates it, before the first tick, and needs
+        game time that only ticks move.
+    */
+    public boolean canRecordReplay() {
+        return atSeedStart && tick == 0 && clock instanceof VirtualClock;
+    }
+
+    //  Records every step from now on to a ReplayLog in this file, see ReplayLog.verify()
+    public void recordReplay(String filename) {
+        if (!canRecordReplay()) {
+            throw new IllegalStateException("Only a world fresh from its seed, not played yet and on a VirtualClock, "
+                    + "can be recorded.");
         }
-        player.tryMove(input.charAt(0));
+        replay = new ReplayLog(this, filename);
     }
 
-    private void resetActionTime() {
-        prevActionTime = System.currentTimeMillis();
+    //  Ends the log of a game stopped before it's over, so it doesn't read as cut short
+    public void endReplay() {
+        if (replay != null) {
+            replay.stop();
+        }
     }
 
-    private long actionTime() {
-        return System.currentTimeMillis() - prevActionTime;
+    public long getTick() {
+        return tick;
     }
 
     public void setGameOver(boolean playerWinning) {
-        this.isGameOver = true;
+        outcome = playerWinning ? Outcome.WON : Outcome.LOST;
         if (!playerWinning) {
             displayMessageAndExit("Game Over!");
         } else {
@@ -778,7 +586,8 @@ public class World {
     private void displayMessageAndExit(String displayedMessage) {
         StdDraw.setPenColor(StdDraw.WHITE);
         StdDraw.setFont(new Font("Monaco", Font.BOLD, 48));
-        StdDraw.text(width / 2.0, height / 2.0, displayedMessage);
+        StdDraw.text((camera == null ? width : camera.getWidth()) / 2.0,
+                (camera == null ? height : camera.getHeight()) / 2.0, displayedMessage);
         StdDraw.show();
         StdDraw.pause(3000);
         System.exit(0);
@@ -787,61 +596,156 @@ public class World {
 
 
     /**  Saving and loading methods below   */
+    /*  Appends what changed since the last save to the journal, starting one in the directory's
+        JOURNAL_FILE on the first save. The journal compacts itself once it outgrows a snapshot.
+    */
+    public void saveGame(String directory) {
+        if (journal == null) {
+            enableJournal(savePath(directory, JOURNAL_FILE));
+        }
+        journal.commit();
+    }
+
     public void saveGame() {
+        saveGame(SAVE_DIRECTORY);
+    }
+
+    public void enableJournal(String filename) {
+        journal = new SaveJournal(this, filename);
+    }
+
+    public void enableJournal() {
+        enableJournal(JOURNAL_FILE);
+    }
+
+    protected void setJournal(SaveJournal saveJournal) {
+        journal = saveJournal;
+    }
+
+    protected int snapshotBytes() {
+        return SAVE_HEADER_BYTES + width * height + entities.size() * AVATAR_RECORD_BYTES;
+    }
+
+    protected void writeSnapshot(String filename) {
+        byte[] cells = board.getCells();
+        ByteBuffer saveBuffer = ByteBuffer.allocate(snapshotBytes());
+        saveBuffer.putInt(SAVE_MAGIC).putInt(SAVE_VERSION).putInt(width).putInt(height)
+                .putLong(Long.parseLong(random.seed)).putLong(random.getState()).putInt(random.numOfCalls)
+                .putInt(roomNum).putInt(numOfFoodEatenByPlayer).putInt(numOfFoodEatenByEnemies)
+                .putInt(enemyNum).putInt(foodNum)
+                .put(cells);
+        for (int i = 0; i < entities.size(); i++) {
+            saveBuffer.putInt(entities.getX(i)).putInt(entities.getY(i))
+                    .putInt(entities.getFullHealth(i)).putInt(entities.getHealth(i));
+        }
+        saveBuffer.flip();
+        FileUtils.writeFile(filename, saveBuffer);
+    }
+
+    //  The old plain text save, one digit per tile, for reading saves by eye. ':' 'T' writes it to
+    //  TEXT_EXPORT_FILE; the game saves to its journal.
+    public void exportTextSave(String filename) {
         StringBuilder saveString = new StringBuilder(width + "\n" + height + "\n" + random.toString() + "\n");
         for (int y = height - 1; y >= 0; y--) {
             for (int x = 0; x < width; x++) {
-                saveString.append(boardStatus[x][y]);
+                saveString.append(board.get(x, y));
             }
             saveString.append("\n");
         }
 
         saveString.append(roomNum).append("\t").append(numOfFoodEatenByPlayer).
                 append("\t").append(numOfFoodEatenByEnemies).append("\n");
-        saveString.append(player.toString()).append("\n");
-        for (Avatar enemy: enemies) {
-            saveString.append(enemy.toString()).append("\n");
+        for (int i = 0; i < entities.size(); i++) {
+            saveString.append(entities.describe(i)).append("\n");
+        }
+
+        FileUtils.writeFile(filename, saveString.toString());
+    }
+
+    private void loadBinary(ByteBuffer saved) {
+        saved.getInt();
+        int version = saved.getInt();
+        if (version > SAVE_VERSION) {
+            throw new IllegalArgumentException("Save file version " + version + " is newer than this game supports.");
+        }
+        width = saved.getInt();
+        height = saved.getInt();
+        seed = saved.getLong();
+        random = new RandomAssumedOnlyGeneratingIntJustForFileSaving(seed);
+        long rngState = saved.getLong();
+        random.restoreState(rngState, saved.getInt());
+        roomNum = saved.getInt();
+        numOfFoodEatenByPlayer = saved.getInt();
+        numOfFoodEatenByEnemies = saved.getInt();
+        enemyNum = saved.getInt();
+        foodNum = saved.getInt();
+        board = new CellBoard(width, height);
+        saved.get(board.getCells());
+        entities = new EntityStore(this, 1 + enemyNum + foodNum);
+        entities.add(saved.getInt(), saved.getInt(), saved.getInt(), saved.getInt(), CellBoard.PLAYER);
+        for (int i = 0; i < enemyNum; i++) {
+            loadAvatar(saved.getInt(), saved.getInt(), saved.getInt(), saved.getInt(), CellBoard.ENEMY);
+        }
+        for (int i = 0; i < foodNum; i++) {
+            loadAvatar(saved.getInt(), saved.getInt(), saved.getInt(), saved.getInt(), CellBoard.FOOD);
+        }
+    }
+
+    private void loadText(String[] fileContent) {
+        width = Integer.parseInt(fileContent[0]);
+        height = Integer.parseInt(fileContent[1]);
+        String[] lineSplit = fileContent[2].split("\t");
+        seed = Long.parseLong(lineSplit[0]);
+        random = new RandomAssumedOnlyGeneratingIntJustForFileSaving(seed);
+        if (lineSplit.length > 2) {
+            random.restoreState(Long.parseLong(lineSplit[2].trim()), Integer.parseInt(lineSplit[1]));
+        } else {
+            //  saves from before the state was written only have the seed and the call count
+            for (int i = Integer.parseInt(lineSplit[1].trim()); i > 0; i--) {
+                random.nextInt();
+            }
+        }
+        board = loadBoard(fileContent);
+        int lineIndex = height + 3;
+        lineSplit = fileContent[lineIndex].split("\t");
+        roomNum = Integer.parseInt(lineSplit[0]);
+        numOfFoodEatenByPlayer = Integer.parseInt(lineSplit[1]);
+        numOfFoodEatenByEnemies = Integer.parseInt(lineSplit[2]);
+        lineSplit = fileContent[++lineIndex].split("\t");
+        enemyNum = (int) (roomNum / 1.5);
+        foodNum = roomNum;
+        entities = new EntityStore(this, 1 + enemyNum + foodNum);
+        entities.add(Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2]),
+                Integer.parseInt(lineSplit[3]), Integer.parseInt(lineSplit[4]), CellBoard.PLAYER);
+        for (int i = 0; i < enemyNum; i++) {
+            lineSplit = fileContent[++lineIndex].split("\t");
+            loadAvatar(Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2]),
+                    Integer.parseInt(lineSplit[3]), Integer.parseInt(lineSplit[4]), CellBoard.ENEMY);
         }
-        for (Avatar food: foods) {
-            saveString.append(food.toString()).append("\n");
+        for (int i = 0; i < foodNum; i++) {
+            lineSplit = fileContent[++lineIndex].split("\t");
+            loadAvatar(Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2]),
+                    Integer.parseInt(lineSplit[3]), Integer.parseInt(lineSplit[4]), CellBoard.FOOD);
         }
+    }
 
-        FileUtils.writeFile(SAVE_FILE, saveString.toString());
+    private void loadAvatar(int x, int y, int fullHealth, int health, byte type) {
+        int id = entities.add(x, y, fullHealth, health, type);
+        if (health == 0) {
+            entities.kill(id);
+        }
     }
-    public TETile[][] loadBoard(String filename) {
-        String[] fileContent = FileUtils.readFile(filename).split("\n");
+
+    private static CellBoard loadBoard(String[] fileContent) {
         int loadWidth = Integer.parseInt(fileContent[0]),
             loadHeight = Integer.parseInt(fileContent[1]);
-        TETile[][] loadedBoard = new TETile[loadWidth][loadHeight];
+        CellBoard loadedBoard = new CellBoard(loadWidth, loadHeight);
         for (int i = 0; i < loadHeight; i++) {
+            String line = fileContent[i + 3];
             for (int x = 0; x < loadWidth; x++) {
-                switch (fileContent[i + 3].charAt(x)) {
-                    case '0': {
-                        loadedBoard[x][loadHeight - i - 1] = Tileset.NOTHING;
-                        break;
-                    }
-                    case '1': {
-                        loadedBoard[x][loadHeight - i - 1] = boundary;
-                        break;
-                    }
-                    case '2': {
-                        loadedBoard[x][loadHeight - i - 1] = interior;
-                        break;
-                    }
-                    case '3': {
-                        loadedBoard[x][loadHeight - i - 1] = playerTile;
-                        break;
-                    }
-                    case '4': {
-                        loadedBoard[x][loadHeight - i - 1] = enemyTile;
-                        break;
-                    }
-                    case '5': {
-                        loadedBoard[x][loadHeight - i - 1] = foodTile;
-                        break;
-                    }
-                    default: {
-                    }
+                char status = line.charAt(x);
+                if ('0' <= status && status < '0' + CellBoard.STATUS_NUM) {
+                    loadedBoard.set(x, loadHeight - i - 1, (byte) (status - '0'));
                 }
             }
         }
@@ -851,7 +755,10 @@ public class World {
 
     /**  Methods for getting instance variables below.  */
     public boolean isGameOver() {
-        return isGameOver;
+        return outcome != Outcome.ONGOING;
+    }
+    public Outcome getOutcome() {
+        return outcome;
     }
     public long getSeed() {
         return seed;
@@ -865,10 +772,38 @@ public class World {
     protected RandomAssumedOnlyGeneratingIntJustForFileSaving getRandom() {
         return random;
     }
+    protected FreeCellIndex getFreeCells() {
+        return freeCells;
+    }
+    protected boolean isGeneratedFromSeed() {
+        return generatedFromSeed;
+    }
+    protected boolean isSizeFromSeed() {
+        return sizeFromSeed;
+    }
+    //  The player, then every enemy, then every food. Saves number avatars in this order.
+    protected EntityStore getEntities() {
+        return entities;
+    }
+    protected int getNumOfFoodEatenByPlayer() {
+        return numOfFoodEatenByPlayer;
+    }
+    protected int getNumOfFoodEatenByEnemies() {
+        return numOfFoodEatenByEnemies;
+    }
+    protected void restoreFoodEaten(int byPlayer, int byEnemies) {
+        atSeedStart = false;
+        numOfFoodEatenByPlayer = byPlayer;
+        numOfFoodEatenByEnemies = byEnemies;
+    }
+    //  Built on first use, then kept up to date as the board changes
     public TETile[][] getBoard() {
+        return board.toTiles(tilePalette);
+    }
+    public CellBoard getCellBoard() {
         return board;
     }
-    public short[][] getBoardStatus() {
-        return boardStatus;
+    protected TETile[] getTilePalette() {
+        return tilePalette;
     }
 }
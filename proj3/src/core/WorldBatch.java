@@ -0,0 +1,69 @@
+package core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.LongStream;
+
+/**
+ * Generates many worlds at once, one seed per world, spread over a fork-join pool.
+ * Each World has its own generator and random, so the worlds come out exactly as
+ * new World(seed) would build them one at a time, and in the same order as the seeds.
+ */
+public class WorldBatch {
+    // below this many seeds a task just builds its worlds instead of splitting further
+    private static final int SEEDS_PER_TASK = 16;
+
+    private final ForkJoinPool pool;
+
+    public WorldBatch(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public WorldBatch() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public World[] generate(long[] seeds) {
+        World[] worlds = new World[seeds.length];
+        pool.invoke(new GenerateRange(seeds, worlds, 0, seeds.length));
+        return worlds;
+    }
+
+    public List<World> generate(LongStream seeds) {
+        return Arrays.asList(generate(seeds.toArray()));
+    }
+
+    private static class GenerateRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] seeds;
+        private final World[] worlds;
+        private final int from;
+        private final int to;
+
+        GenerateRange(long[] seeds, World[] worlds, int from, int to) {
+            this.seeds = seeds;
+            this.worlds = worlds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEEDS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        worlds[i] = new World(seeds[i]);
+                    } catch (IllegalStateException e) {
+                        throw new IllegalStateException("Failed to generate seed " + seeds[i], e);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new GenerateRange(seeds, worlds, from, mid), new GenerateRange(seeds, worlds, mid, to));
+        }
+    }
+}
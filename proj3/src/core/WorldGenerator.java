@@ -0,0 +1,439 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Builds the rooms-and-hallways board of a World. Everything a generation touches lives in here,
+ * so one generator builds exactly one board and separate generators can run on separate threads.
+ */
+public class WorldGenerator {
+
+    protected static final int DEFAULT_WIDTH_MIN = 64;
+    protected static final int DEFAULT_WIDTH_MAX = 88;
+    protected static final int DEFAULT_HEIGHT_MIN = 40;
+    protected static final int DEFAULT_HEIGHT_MAX = 55;
+    private static final int DEFAULT_ROOM_SIDE_LENGTH_MIN = 5;
+    private static final int DEFAULT_STRUCTURE_DISTANCE_MIN = 1;
+    // hallway attempts allowed per room before fixHallway() takes over, so the board only depends on the seed
+    private static final int HALLWAY_TRIES_PER_ROOM = 64;
+
+    private final int width;
+    private final int height;
+    private final int roomSideLengthMin = DEFAULT_ROOM_SIDE_LENGTH_MIN;
+    private final int roomSideLengthMax;
+    private final int structureDistanceMin = DEFAULT_STRUCTURE_DISTANCE_MIN;
+    // assuming average room is 5*5 and takes up at most half of the board area, thus width * height / 98 below
+    private final int roomNumMax;
+    private int roomNum;
+    private final Random random;
+
+    private final byte boundary = CellBoard.BOUNDARY;
+    private final byte interior = CellBoard.INTERIOR;
+
+    private CellBoard tileBoard;
+    private BitGrid kindOfFakeRoomOccupation;
+    private BitGrid tileOccupiedByRoom;
+    private BitGrid tileOccupiedByHallway;
+    private ArrayList<StructRecord> rooms;
+    private ArrayList<StructRecord> hallways;
+    private StructIndex roomIndex;
+    private StructIndex hallwayIndex;
+    private DisjointSet roomConnection;
+
+    private class StructRecord {
+        int fromX;
+        int fromY;
+        int toX;
+        int toY;
+        int grownFromAsHallway;
+        ArrayList<Direction> outwardDirections;
+
+        public StructRecord(int fx, int fy, int tx, int ty, int rg) {
+            grownFromAsHallway = rg;
+            fromX = fx;
+            fromY = fy;
+            toX = tx;
+            toY = ty;
+            outwardDirections = new ArrayList<>();
+            if (fromX - structureDistanceMin > 2) {
+                outwardDirections.add(Direction.LEFT);
+            }
+            if (fromY - structureDistanceMin > 2) {
+                outwardDirections.add(Direction.DOWN);
+            }
+            if (toX + structureDistanceMin < width - 2) {
+                outwardDirections.add(Direction.RIGHT);
+            }
+            if (toY + structureDistanceMin < height - 2) {
+                outwardDirections.add(Direction.UP);
+            }
+        }
+
+        public StructRecord(int fx, int fy, int tx, int ty) {
+            this(fx, fy, tx, ty, -1);
+        }
+    }
+
+
+    public WorldGenerator(int w, int h, Random rdm) {
+        width = w;
+        height = h;
+        random = rdm;
+        roomSideLengthMax = Math.max(Math.min(width, height) / 3, roomSideLengthMin);
+        roomNumMax = width * height / 98;
+    }
+
+    //  Draws the board size from rdm first, the way a World built from just a seed does
+    public WorldGenerator(Random rdm) {
+        this(rdm.nextInt(DEFAULT_WIDTH_MIN, DEFAULT_WIDTH_MAX), rdm.nextInt(DEFAULT_HEIGHT_MIN, DEFAULT_HEIGHT_MAX),
+                rdm);
+    }
+
+    private void fillTiles(CellBoard tiles, byte tileType, int startX, int startY, int fillWidth, int fillHeight) {
+        tiles.fill(startX, startY, startX + fillWidth, startY + fillHeight, tileType);
+    }
+
+    private void fillTiles2(CellBoard tiles, byte tileType, int x1, int y1, int x2, int y2) {
+        tiles.fill(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2) + 1, Math.max(y1, y2) + 1, tileType);
+    }
+
+    private void fillBits2(BitGrid bits, int x1, int y1, int x2, int y2) {
+        bits.fill(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2) + 1, Math.max(y1, y2) + 1);
+    }
+
+    private void createRoom(CellBoard tiles, byte boundaryTileType, byte interiorTileType,
+                            int startX, int startY, int roomWidth, int roomHeight) {
+        fillTiles(tiles, boundaryTileType,
+                startX, startY, roomWidth, roomHeight);
+        fillTiles(tiles, interiorTileType,
+                startX + 1, startY + 1, roomWidth - 2, roomHeight - 2);
+    }
+
+    private void tryCreateHallway(CellBoard tiles, BitGrid roomOccupation, BitGrid hallwayOccupation,
+                                  ArrayList<StructRecord> rooms, ArrayList<StructRecord> hallways,
+                                  DisjointSet roomConnection, Random rdm) {
+        int fromRoomIndex = Math.floorMod(rdm.nextInt(), rooms.size());
+        StructRecord fromRoom = rooms.get(fromRoomIndex);
+        Direction direction =
+                fromRoom.outwardDirections.get(Math.floorMod(rdm.nextInt(), fromRoom.outwardDirections.size()));
+        int hallwayCenterFromX = 0,
+            hallwayCenterFromY = 0;
+        switch (direction) {
+            case RIGHT -> {
+                hallwayCenterFromX = fromRoom.toX;
+                hallwayCenterFromY = rdm.nextInt(fromRoom.fromY + 1, fromRoom.toY - 1);
+            }
+            case UP -> {
+                hallwayCenterFromX = rdm.nextInt(fromRoom.fromX + 1, fromRoom.toX - 1);
+                hallwayCenterFromY = fromRoom.toY;
+            }
+            case LEFT -> {
+                hallwayCenterFromX = fromRoom.fromX - 1;
+                hallwayCenterFromY = rdm.nextInt(fromRoom.fromY + 1, fromRoom.toY - 1);
+            }
+            case DOWN -> {
+                hallwayCenterFromX = rdm.nextInt(fromRoom.fromX + 1, fromRoom.toX - 1);
+                hallwayCenterFromY = fromRoom.fromY - 1;
+            }
+            default -> {
+                return;
+            }
+        }
+        int currentX = hallwayCenterFromX,
+            currentY = hallwayCenterFromY;
+        while (true) {
+            short growStatus = tryGrowInDirection(currentX, currentY, direction, roomOccupation, hallwayOccupation);
+            if (growStatus == 0) {
+                return;
+            }
+            if (growStatus == 1) {
+                switch (direction) {
+                    case RIGHT -> currentX++;
+                    case UP -> currentY++;
+                    case LEFT -> currentX--;
+                    case DOWN -> currentY--;
+                    default -> {
+                        return;
+                    }
+                }
+            }
+            if (growStatus == 2 || growStatus == 3) {
+                addHallway(growActualHallway(tiles, hallwayOccupation, direction,
+                        hallwayCenterFromX, hallwayCenterFromY, currentX, currentY, fromRoomIndex));
+                if (growStatus == 2) {
+                    int connectedRoomIndex = roomIndex.indexContaining(currentX, currentY);
+                    roomConnection.connect(fromRoomIndex, connectedRoomIndex);
+                } else {
+                    int connectedHallwayIndex = hallwayIndex.indexContaining(currentX, currentY);
+                    roomConnection.connect(fromRoomIndex, hallways.get(connectedHallwayIndex).grownFromAsHallway);
+                }
+                return;
+            }
+        }
+    }
+
+    /*  return 0 : Can't handle the situation easily
+        return 1 : Nothing's in front, just grow normally
+        return 2 : There's a room I can grow into in front
+        return 3 : There's another hallway in front that I'm intersecting transversally
+    */
+    private short tryGrowInDirection(int currentCenterX, int currentCenterY, Direction direction,
+                                     BitGrid roomOccupation, BitGrid hallwayOccupation) {
+        int fromX, fromY, toX, toY;
+        if (direction == Direction.UP || direction == Direction.DOWN) {
+            if ((direction == Direction.UP && currentCenterY == height - 1)
+                || (direction == Direction.DOWN && currentCenterY == 0)) {
+                return 0;
+            }
+            fromX = currentCenterX - 1;
+            fromY = currentCenterY;
+            toX = currentCenterX + 2;
+            toY = currentCenterY + 1;
+        } else if (direction == Direction.RIGHT || direction == Direction.LEFT) {
+            if ((direction == Direction.RIGHT && currentCenterX == width - 1)
+                || (direction == Direction.LEFT && currentCenterX == 0)) {
+                return 0;
+            }
+            fromX = currentCenterX;
+            fromY = currentCenterY - 1;
+            toX = currentCenterX + 1;
+            toY = currentCenterY + 2;
+        } else {
+            return 0;
+        }
+        //  the three tiles right in front of the hallway have to be all room, all hallway or all empty
+        if (roomOccupation.allSet(fromX, fromY, toX, toY)) {
+            return 2;
+        } else if (!roomOccupation.anySet(fromX, fromY, toX, toY)) {
+            if (hallwayOccupation.allSet(fromX, fromY, toX, toY)) {
+                return 3;
+            } else if (!hallwayOccupation.anySet(fromX, fromY, toX, toY)) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+
+    //  The only reason for separating this method from tryCreateHallway() is to pass style check (it's too long)
+    private StructRecord growActualHallway(CellBoard tiles, BitGrid hallwayOccupation, Direction direction,
+                                           int hallwayCenterFromX, int hallwayCenterFromY, int currentX, int currentY,
+                                           int fromRoomIndex) {
+        int hallwayLength = (direction == Direction.UP || direction == Direction.DOWN)
+                ? Math.abs(currentY - hallwayCenterFromY) : Math.abs(currentX - hallwayCenterFromX);
+        switch (direction) {
+            case RIGHT -> {
+                fillTiles(tiles, boundary,
+                        hallwayCenterFromX, hallwayCenterFromY - 1, hallwayLength, 3);
+                fillTiles(tiles, interior,
+                        hallwayCenterFromX - 1, hallwayCenterFromY, hallwayLength + 2, 1);
+                hallwayOccupation.fill(hallwayCenterFromX, hallwayCenterFromY - 1, currentX, hallwayCenterFromY + 2);
+                return (new StructRecord(hallwayCenterFromX, hallwayCenterFromY - 1,
+                        currentX, hallwayCenterFromY + 2, fromRoomIndex));
+            }
+            case UP -> {
+                fillTiles(tiles, boundary,
+                        hallwayCenterFromX - 1, hallwayCenterFromY, 3, hallwayLength);
+                fillTiles(tiles, interior,
+                        hallwayCenterFromX, hallwayCenterFromY - 1, 1, hallwayLength + 2);
+                hallwayOccupation.fill(hallwayCenterFromX - 1, hallwayCenterFromY, hallwayCenterFromX + 2, currentY);
+                return (new StructRecord(hallwayCenterFromX - 1, hallwayCenterFromY,
+                        hallwayCenterFromX + 2, currentY, fromRoomIndex));
+            }
+            case LEFT -> {
+                fillTiles(tiles, boundary,
+                        currentX + 1, hallwayCenterFromY - 1, hallwayLength, 3);
+                fillTiles(tiles, interior,
+                        currentX, hallwayCenterFromY, hallwayLength + 2, 1);
+                hallwayOccupation.fill(currentX + 1, hallwayCenterFromY - 1,
+                        hallwayCenterFromX + 1, hallwayCenterFromY + 2);
+                return (new StructRecord(currentX + 1, hallwayCenterFromY - 1,
+                        hallwayCenterFromX + 1, hallwayCenterFromY + 2, fromRoomIndex));
+            }
+            case DOWN -> {
+                fillTiles(tiles, boundary,
+                        hallwayCenterFromX - 1, currentY + 1, 3, hallwayLength);
+                fillTiles(tiles, interior,
+                        hallwayCenterFromX, currentY, 1, hallwayLength + 2);
+                hallwayOccupation.fill(hallwayCenterFromX - 1, currentY + 1,
+                        hallwayCenterFromX + 2, hallwayCenterFromY + 1);
+                return (new StructRecord(hallwayCenterFromX - 1, currentY + 1,
+                        hallwayCenterFromX + 2, hallwayCenterFromY + 1, fromRoomIndex));
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private void addRoom(StructRecord room) {
+        rooms.add(room);
+        roomIndex.add(room.fromX, room.fromY, room.toX, room.toY);
+    }
+
+    private void addHallway(StructRecord hallway) {
+        hallways.add(hallway);
+        hallwayIndex.add(hallway.fromX, hallway.fromY, hallway.toX, hallway.toY);
+    }
+
+    private boolean forceConnect(CellBoard tiles, StructRecord isolatedRoom, StructRecord helpRoom, int iso, int help,
+                                 BitGrid hallwayOccupation, BitGrid roomOccupation) {
+        boolean helpRoomIsLeft = helpRoom.toX < isolatedRoom.toX,
+                helpRoomIsBelow = helpRoom.toY < isolatedRoom.toY;
+        int isoHallwayX = (isolatedRoom.fromX + isolatedRoom.toX) / 2,
+            isoHallwayY = helpRoomIsBelow ? isolatedRoom.fromY - 1 : isolatedRoom.toY,
+            helpHallwayX = helpRoomIsLeft ? helpRoom.toX : helpRoom.fromX - 1,
+            helpHallwayY = (helpRoom.fromY + helpRoom.toY) / 2,
+            auxVertical = helpRoomIsBelow ? -1 : 1,
+            auxHorizontal = helpRoomIsLeft ? -1 : 1,
+            verFromX = isoHallwayX - 1,
+            verFromY = Math.min(isoHallwayY, helpHallwayY + auxVertical),
+            verToX = isoHallwayX + 1,
+            verToY = Math.max(isoHallwayY, helpHallwayY + auxVertical),
+            horFromX = Math.min(helpHallwayX, isoHallwayX - auxHorizontal),
+            horFromY = helpHallwayY - 1,
+            horToX = Math.max(helpHallwayX, isoHallwayX - auxHorizontal),
+            horToY = helpHallwayY + 1;
+        if (verFromX < 0 || horFromX < 0 || verFromY < 0 || horFromY < 0
+                || verToX >= width || horToX >= width || verToY >= height || horToY >= height) {
+            return false;
+        }
+        if (roomOccupation.anySet(verFromX, verFromY, verToX, verToY)
+                || hallwayOccupation.anySet(verFromX, verFromY, verToX, verToY)
+                || roomOccupation.anySet(horFromX, horFromY, horToX, horToY)
+                || hallwayOccupation.anySet(horFromX, horFromY, horToX, horToY)) {
+            return false;
+        }
+        addHallway(new StructRecord(verFromX, verFromY, verToX + 1, verToY + 1, iso));
+        addHallway(new StructRecord(horFromX, horFromY, horToX + 1, horToY + 1, help));
+        fillTiles2(tiles, boundary, verFromX, verFromY, verToX, verToY);
+        fillTiles2(tiles, boundary, horFromX, horFromY, horToX, horToY);
+        fillTiles2(tiles, interior, isoHallwayX, isoHallwayY - auxVertical, isoHallwayX, helpHallwayY);
+        fillTiles2(tiles, interior, helpHallwayX + auxHorizontal, helpHallwayY, isoHallwayX, helpHallwayY);
+        fillBits2(hallwayOccupation, verFromX, verFromY, verToX, verToY);
+        fillBits2(hallwayOccupation, horFromX, horFromY, horToX, horToY);
+        return true;
+    }
+
+    public CellBoard generateBoard() {
+        draftBoard();
+        fixHallway();
+        return tileBoard;
+    }
+
+    //  Places the rooms and grows random hallways between them, leaving any stragglers to fixHallway()
+    protected void draftBoard() {
+        tileBoard = new CellBoard(width, height);
+        kindOfFakeRoomOccupation = new BitGrid(width, height);
+        tileOccupiedByRoom = new BitGrid(width, height);
+        tileOccupiedByHallway = new BitGrid(width, height);
+        rooms = new ArrayList<>();
+        hallways = new ArrayList<>();
+        roomIndex = new StructIndex(width, height);
+        hallwayIndex = new StructIndex(width, height);
+        roomNum = 0;
+        for (int tryNum = 0; roomNum < roomNumMax && tryNum < 2 * roomNumMax; tryNum++) {
+            int nextRoomFromX = random.nextInt(width - 4),
+                nextRoomFromY = random.nextInt(height - 4),
+                nextRoomWidth = random.nextInt(roomSideLengthMin, roomSideLengthMax + 1),
+                nextRoomHeight = random.nextInt(roomSideLengthMin, roomSideLengthMax + 1),
+                nextRoomToX = nextRoomFromX + nextRoomWidth,
+                nextRoomToY = nextRoomFromY + nextRoomHeight;
+            if (nextRoomToX >= width || nextRoomToY >= height) {
+                continue;
+            }
+            if (kindOfFakeRoomOccupation.anySet(nextRoomFromX, nextRoomFromY, nextRoomToX, nextRoomToY)) {
+                continue;
+            }
+            createRoom(tileBoard, boundary, interior, nextRoomFromX, nextRoomFromY, nextRoomWidth, nextRoomHeight);
+            addRoom(new StructRecord(nextRoomFromX, nextRoomFromY, nextRoomToX, nextRoomToY));
+            tileOccupiedByRoom.fill(nextRoomFromX, nextRoomFromY, nextRoomToX, nextRoomToY);
+            nextRoomFromX -= Math.min(nextRoomFromX, structureDistanceMin);
+            nextRoomFromY -= Math.min(nextRoomFromY, structureDistanceMin);
+            nextRoomToX += Math.min(width - nextRoomToX - 1, structureDistanceMin);
+            nextRoomToY += Math.min(height - nextRoomToY - 1, structureDistanceMin);
+            kindOfFakeRoomOccupation.fill(nextRoomFromX, nextRoomFromY, nextRoomToX, nextRoomToY);
+            roomNum++;
+        }
+        roomConnection = new DisjointSet(roomNum);
+        int hallwayTriesLeft = HALLWAY_TRIES_PER_ROOM * roomNum;
+        while (roomConnection.getConnenctedComponentNum() > 1 && hallwayTriesLeft-- > 0) {
+            tryCreateHallway(tileBoard, tileOccupiedByRoom, tileOccupiedByHallway,
+                    rooms, hallways, roomConnection, random);
+        }
+    }
+
+    protected void fixHallway() {
+        while (roomConnection.getConnenctedComponentNum() > 1) {
+            for (int isoIndex : roomsInSmallComponents()) {
+                int compNumAtIndex = roomConnection.componentSize(isoIndex);
+                if (compNumAtIndex <= roomNum / 2) {
+                    boolean[] marked = new boolean[roomNum];
+                    StructRecord isolatedRoom = rooms.get(isoIndex);
+                    int iso = isoIndex;
+                    while (roomConnection.componentSize(isoIndex) == compNumAtIndex) {
+                        int helpRoomIndex = roomIndex.nearestByGapX(isolatedRoom.fromX, isolatedRoom.toX,
+                                i -> !marked[i] && !roomConnection.isConnected(i, iso));
+                        if (helpRoomIndex == -1) {
+                            break;
+                        }
+                        marked[helpRoomIndex] = true;
+                        if (forceConnect(tileBoard, isolatedRoom, rooms.get(helpRoomIndex), isoIndex, helpRoomIndex,
+                                tileOccupiedByHallway, tileOccupiedByRoom)) {
+                            roomConnection.connect(isoIndex, helpRoomIndex);
+                        }
+                    }
+                }
+            }
+            for (int isoIndex : roomsInSmallComponents()) {
+                int compNumAtIndex = roomConnection.componentSize(isoIndex);
+                if (compNumAtIndex <= roomNum / 2) {
+                    boolean[] marked = new boolean[roomNum];
+                    StructRecord isolatedRoom = rooms.get(isoIndex);
+                    int iso = isoIndex;
+                    while (roomConnection.componentSize(isoIndex) == compNumAtIndex) {
+                        int helpRoomIndex = roomIndex.nearestByGapY(isolatedRoom.fromY, isolatedRoom.toY,
+                                i -> !marked[i] && !roomConnection.isConnected(i, iso));
+                        if (helpRoomIndex == -1) {
+                            throw new IllegalStateException("Seems we've run into some super tricky edge case.");
+                        }
+                        marked[helpRoomIndex] = true;
+                        if (forceConnect(tileBoard, rooms.get(helpRoomIndex), isolatedRoom, helpRoomIndex, isoIndex,
+                            tileOccupiedByHallway, tileOccupiedByRoom)) {
+                            roomConnection.connect(isoIndex, helpRoomIndex);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*  Rooms in components of at most half the rooms, in ascending order. Components only grow, so
+        these are the only rooms a pass of fixHallway() can still find isolated.
+    */
+    private int[] roomsInSmallComponents() {
+        int[] isolated = new int[roomNum];
+        int isolatedNum = 0;
+        for (int[] component : roomConnection.components()) {
+            if (component.length <= roomNum / 2) {
+                System.arraycopy(component, 0, isolated, isolatedNum, component.length);
+                isolatedNum += component.length;
+            }
+        }
+        isolated = Arrays.copyOf(isolated, isolatedNum);
+        Arrays.sort(isolated);
+        return isolated;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+    public int getRoomNum() {
+        return roomNum;
+    }
+}
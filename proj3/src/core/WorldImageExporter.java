@@ -0,0 +1,175 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.TileAtlas;
+import utils.FileUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws worlds into images without a window, for looking at seeds without playing them. Each tile
+ * is copied pixel by pixel from its TileAtlas image, the same picture the game puts on screen, so
+ * StdDraw isn't involved at all.
+ *
+ * Boards taller than ROWS_PER_TASK tiles are cut into strips of rows drawn in parallel, and batches
+ * of seeds are spread over the same fork-join pool, a world per task.
+ *
+ * Run on its own, it writes <seed>.png for a range of seeds into a directory.
+ */
+public class WorldImageExporter {
+    private static final int TILE_SIZE = TileAtlas.TILE_SIZE;
+    // below this many rows of tiles a task just draws them instead of splitting further
+    private static final int ROWS_PER_TASK = 32;
+    // below this many seeds a task just exports its worlds instead of splitting further
+    private static final int SEEDS_PER_TASK = 4;
+    private static final String DEFAULT_DIR = "worlds";
+
+    private final ForkJoinPool pool;
+
+    public WorldImageExporter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public WorldImageExporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    //  The tiles as an image, TILE_SIZE pixels a tile, tiles[0][0] in the bottom left corner
+    public BufferedImage render(TETile[][] tiles) {
+        BufferedImage image = newImage(tiles);
+        pool.invoke(new RenderRows(tiles, image, 0, tiles[0].length));
+        return image;
+    }
+
+    public BufferedImage render(World world) {
+        return render(world.getBoard());
+    }
+
+    public void writePng(World world, String filename) {
+        writePng(render(world), filename);
+    }
+
+    /*  Generates the world of each seed and writes it to dir/<seed>.png, in parallel. Each world is
+        dropped once its file is written, so only as many are kept as there are threads.
+    */
+    public void export(long[] seeds, String dir) {
+        FileUtils.makeDirectories(dir);
+        pool.invoke(new ExportRange(seeds, dir, 0, seeds.length));
+    }
+
+    private static BufferedImage newImage(TETile[][] tiles) {
+        return new BufferedImage(tiles.length * TILE_SIZE, tiles[0].length * TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static void writePng(BufferedImage image, String filename) {
+        try {
+            TileAtlas.writeFastPng(image, new File(filename));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + filename, e);
+        }
+    }
+
+    //  Draws rows [from, to) of tiles, splitting them between tasks if there are many
+    private static class RenderRows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TETile[][] tiles;
+        private final BufferedImage image;
+        private final int from;
+        private final int to;
+
+        RenderRows(TETile[][] tiles, BufferedImage image, int from, int to) {
+            this.tiles = tiles;
+            this.image = image;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                drawRows();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RenderRows(tiles, image, from, mid), new RenderRows(tiles, image, mid, to));
+        }
+
+        /*  Copies straight into the image's pixel array, a row of a tile at a time. Tile pixels are
+            looked up once per strip, so strips don't wait on each other for TileAtlas.
+        */
+        private void drawRows() {
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            int imageWidth = image.getWidth(),
+                numYTiles = tiles[0].length;
+            Map<TETile, int[]> tilePixels = new IdentityHashMap<>();
+            for (int y = from; y < to; y++) {
+                //  tile row y = 0 is at the bottom of the image
+                int top = (numYTiles - 1 - y) * TILE_SIZE;
+                for (int x = 0; x < tiles.length; x++) {
+                    int[] source = tilePixels.computeIfAbsent(tiles[x][y],
+                            tile -> TileAtlas.image(tile).getRGB(0, 0, TILE_SIZE, TILE_SIZE, null, 0, TILE_SIZE));
+                    for (int row = 0; row < TILE_SIZE; row++) {
+                        System.arraycopy(source, row * TILE_SIZE, pixels, (top + row) * imageWidth + x * TILE_SIZE,
+                                TILE_SIZE);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class ExportRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] seeds;
+        private final String dir;
+        private final int from;
+        private final int to;
+
+        ExportRange(long[] seeds, String dir, int from, int to) {
+            this.seeds = seeds;
+            this.dir = dir;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEEDS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    TETile[][] tiles = new World(seeds[i]).getBoard();
+                    BufferedImage image = newImage(tiles);
+                    new RenderRows(tiles, image, 0, tiles[0].length).invoke();
+                    writePng(image, dir + "/" + seeds[i] + ".png");
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ExportRange(seeds, dir, from, mid), new ExportRange(seeds, dir, mid, to));
+        }
+    }
+
+    //  Arguments: directory to write to (worlds), first seed (0), how many seeds after it (1000)
+    public static void main(String[] args) {
+        String dir = args.length > 0 ? args[0] : DEFAULT_DIR;
+        long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int seedNum = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        long[] seeds = new long[seedNum];
+        for (int i = 0; i < seedNum; i++) {
+            seeds[i] = firstSeed + i;
+        }
+
+        long time = System.nanoTime();
+        new WorldImageExporter().export(seeds, dir);
+        double seconds = (System.nanoTime() - time) / 1e9;
+        System.out.println(seedNum + " worlds written to " + dir + " in " + seconds + " s");
+    }
+}
@@ -0,0 +1,87 @@
+package tileengine;
+
+/**
+ * The window of a world that is on screen: width x height tiles, its bottom left corner at (x, y)
+ * in world coordinates. Worlds smaller than the window are shown whole and the camera never moves.
+ *
+ * The camera doesn't slide with every step of what it follows. It stays put until the followed tile
+ * gets within margin tiles of an edge, then jumps to center it again. Between jumps what's on screen
+ * only changes where something moved, so a background baked for the window stays good until the
+ * next jump.
+ */
+public class Camera {
+    private final int width;
+    private final int height;
+    private final int worldWidth;
+    private final int worldHeight;
+    private final int marginX;
+    private final int marginY;
+    private int x = 0;
+    private int y = 0;
+
+    /**
+     * @param width  width of the window in tiles, at most worldWidth is used
+     * @param height height of the window in tiles, at most worldHeight is used
+     * @param worldWidth  width of the whole world in tiles
+     * @param worldHeight height of the whole world in tiles
+     */
+    public Camera(int width, int height, int worldWidth, int worldHeight) {
+        this.width = Math.min(width, worldWidth);
+        this.height = Math.min(height, worldHeight);
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        marginX = this.width / 4;
+        marginY = this.height / 4;
+    }
+
+    /**
+     * Keeps (followX, followY) on screen, at least margin tiles from the edges where the world allows.
+     * @return whether the camera jumped, and so what was baked for the old window is stale
+     */
+    public boolean follow(int followX, int followY) {
+        if (followX - x >= marginX && x + width - 1 - followX >= marginX
+                && followY - y >= marginY && y + height - 1 - followY >= marginY) {
+            return false;
+        }
+        int newX = clamp(followX - width / 2, worldWidth - width),
+            newY = clamp(followY - height / 2, worldHeight - height);
+        boolean jumped = newX != x || newY != y;
+        x = newX;
+        y = newY;
+        return jumped;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isVisible(int worldX, int worldY) {
+        return x <= worldX && worldX < x + width && y <= worldY && worldY < y + height;
+    }
+
+    //  World x of screen column screenX, counted from the left of the window
+    public int toWorldX(int screenX) {
+        return screenX + x;
+    }
+
+    //  World y of screen row screenY, counted from the bottom of the window
+    public int toWorldY(int screenY) {
+        return screenY + y;
+    }
+}
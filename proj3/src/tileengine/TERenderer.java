@@ -4,6 +4,11 @@ import edu.princeton.cs.algs4.StdDraw;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Utility class for rendering tiles. You do not need to modify this file. You're welcome
@@ -12,11 +17,17 @@ import java.awt.Font;
  * allowing scrolling of the screen or tracking the avatar or something similar.
  */
 public class TERenderer {
-    private static final int TILE_SIZE = 16;
+    private static final int TILE_SIZE = TileAtlas.TILE_SIZE;
     private int width;
     private int height;
     private int xOffset;
     private int yOffset;
+    private File backgroundFile;
+    private int backgroundX;
+    private int backgroundY;
+    private int backgroundWidth;
+    private int backgroundHeight;
+    private Camera camera;
 
     /**
      * Same functionality as the other initialization method. The only difference is that the xOff
@@ -60,6 +71,16 @@ public class TERenderer {
         initialize(w, h, 0, 0);
     }
 
+    /**
+     * Shows only the camera's window of the world from now on. Positions given to drawTiles(),
+     * drawTile() and setBackground() stay world positions; the window's bottom left corner is drawn
+     * at xOffset, yOffset. Pass null to draw the world from position 0, 0 again.
+     * @param camera the camera to draw through, or null
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
     /**
      * Takes in a 2d array of TETile objects and renders the 2d array to the screen, starting from
      * xOffset and yOffset.
@@ -89,21 +110,113 @@ public class TERenderer {
     }
 
     /**
-     * Draws all world tiles without clearing the canvas or showing the tiles.
+     * Draws all world tiles without clearing the canvas or showing the tiles. With a camera, only
+     * the tiles in its window are looked at, however big the world is.
      * @param world the 2D TETile[][] array to render
      */
     public void drawTiles(TETile[][] world) {
-        int numXTiles = world.length;
-        int numYTiles = world[0].length;
+        int fromX = camera == null ? 0 : camera.getX();
+        int fromY = camera == null ? 0 : camera.getY();
+        int toX = camera == null ? world.length : Math.min(world.length, fromX + camera.getWidth());
+        int toY = camera == null ? world[0].length : Math.min(world[0].length, fromY + camera.getHeight());
+        for (int x = fromX; x < toX; x += 1) {
+            for (int y = fromY; y < toY; y += 1) {
+                if (world[x][y] == null) {
+                    throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
+                            + " is null.");
+                }
+                world[x][y].draw(x - fromX + xOffset, y - fromY + yOffset);
+            }
+        }
+    }
+
+    /**
+     * Bakes the given tiles into a single image, so drawBackground() can put all of them on screen
+     * at once instead of drawing them one by one. Meant for the parts of a world that never change,
+     * like walls and floors; changing tiles can be drawn over it with drawTile(). Call this again if
+     * the background does change.
+     * @param background the 2D TETile[][] array to bake, laid out the same as for drawTiles()
+     */
+    public void setBackground(TETile[][] background) {
+        setBackground(background, 0, 0);
+    }
+
+    /**
+     * Same as setBackground(background), for tiles that are only part of the world, background[0][0]
+     * being the tile at position worldX, worldY. With a camera, bake just its window and bake again when it
+     * jumps, so baking costs the same however big the world is.
+     * @param background the 2D TETile[][] array to bake
+     * @param worldX world x of background[0][0]
+     * @param worldY world y of background[0][0]
+     */
+    public void setBackground(TETile[][] background, int worldX, int worldY) {
+        int numXTiles = background.length;
+        int numYTiles = background[0].length;
+        BufferedImage image = new BufferedImage(numXTiles * TILE_SIZE, numYTiles * TILE_SIZE,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
         for (int x = 0; x < numXTiles; x += 1) {
             for (int y = 0; y < numYTiles; y += 1) {
-                if (world[x][y] == null) {
+                if (background[x][y] == null) {
                     throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
                             + " is null.");
                 }
-                world[x][y].draw(x + xOffset, y + yOffset);
+                g.drawImage(TileAtlas.image(background[x][y]), x * TILE_SIZE,
+                        (numYTiles - 1 - y) * TILE_SIZE, null);
             }
         }
+        g.dispose();
+
+        // StdDraw only draws images from files, which the toolkit caches by name, so every bake rewrites
+        // the same file and drops the cached copy of the last one
+        try {
+            if (backgroundFile == null) {
+                backgroundFile = File.createTempFile("background", ".png");
+                backgroundFile.deleteOnExit();
+            }
+            TileAtlas.writeFastPng(image, backgroundFile);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Toolkit.getDefaultToolkit().getImage(backgroundFile.getPath()).flush();
+        backgroundX = worldX;
+        backgroundY = worldY;
+        backgroundWidth = numXTiles;
+        backgroundHeight = numYTiles;
+    }
+
+    /**
+     * Draws the tiles given to setBackground(), starting from xOffset and yOffset, without clearing
+     * the canvas or showing them. Does nothing if there is no background yet.
+     */
+    public void drawBackground() {
+        if (backgroundFile == null) {
+            return;
+        }
+        StdDraw.picture(screenX(backgroundX) + backgroundWidth / 2.0, screenY(backgroundY) + backgroundHeight / 2.0,
+                backgroundFile.getPath(), backgroundWidth, backgroundHeight);
+    }
+
+    /**
+     * Draws a single tile at position x, y of the world, counted from xOffset and yOffset like
+     * drawTiles() does. Nothing is drawn if the tile is outside the camera's window.
+     * @param tile the tile to draw
+     * @param x x position in the world
+     * @param y y position in the world
+     */
+    public void drawTile(TETile tile, int x, int y) {
+        if (camera == null || camera.isVisible(x, y)) {
+            tile.draw(screenX(x), screenY(y));
+        }
+    }
+
+    //  Where world x is drawn on screen, in tiles
+    private int screenX(int x) {
+        return x + xOffset - (camera == null ? 0 : camera.getX());
+    }
+
+    private int screenY(int y) {
+        return y + yOffset - (camera == null ? 0 : camera.getY());
     }
 
     /**
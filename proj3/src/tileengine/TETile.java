@@ -1,10 +1,17 @@
 package tileengine;
 
 import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Random;
 
 import edu.princeton.cs.algs4.StdDraw;
+
+import javax.imageio.ImageIO;
 import utils.RandomUtils;
 
 /**
@@ -88,16 +95,21 @@ public class TETile {
 
 
     /**
-     * Draws the tile to the screen at location x, y. If a valid filepath is provided,
-     * we draw the image located at that filepath to the screen. Otherwise, we fall
-     * back to the character and color representation for the tile.
+     * Draws the tile to the screen at location x, y, as a single copy of its image from TileAtlas.
+     * That image is the one at filepath, scaled to a tile, if a valid filepath is provided, and the
+     * character and color representation otherwise.
      *
-     * Note that the image provided must be of the right size (16x16). It will not be
-     * automatically resized or truncated.
+     * If the atlas can't make a file for the tile, it's drawn the old way instead: the image at
+     * filepath (which must be of the right size, 16x16) or the character and colors.
      * @param x x coordinate
      * @param y y coordinate
      */
     public void draw(double x, double y) {
+        String atlasFile = TileAtlas.file(this);
+        if (atlasFile != null) {
+            StdDraw.picture(x + 0.5, y + 0.5, atlasFile, 1, 1);
+            return;
+        }
         if (filepath != null) {
             try {
                 StdDraw.picture(x + 0.5, y + 0.5, filepath);
@@ -114,6 +126,37 @@ public class TETile {
         StdDraw.text(x + 0.5, y + 0.5, Character.toString(character()));
     }
 
+    /**
+     * Draws the tile into an image instead of the screen, the same way draw() would: the image at
+     * filepath if it can be read, otherwise the character over the background color. The character
+     * is drawn in the Graphics2D's current font.
+     * @param g graphics of the image to draw into
+     * @param px x pixel of the tile's left edge
+     * @param py y pixel of the tile's top edge
+     * @param size width and height of the tile in pixels
+     */
+    public void rasterize(Graphics2D g, int px, int py, int size) {
+        if (filepath != null) {
+            try {
+                BufferedImage image = ImageIO.read(new File(filepath));
+                if (image != null) {
+                    g.drawImage(image, px, py, size, size, null);
+                    return;
+                }
+            } catch (IOException e) {
+                // Same as draw(), fall back to the character and background color.
+            }
+        }
+
+        g.setColor(backgroundColor);
+        g.fillRect(px, py, size, size);
+        g.setColor(textColor);
+        String text = Character.toString(character());
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(text, (float) (px + (size - metrics.stringWidth(text)) / 2.0),
+                (float) (py + size / 2.0 + metrics.getDescent()));
+    }
+
     /** Character representation of the tile. Used for drawing in text mode.
      * @return character representation
      */
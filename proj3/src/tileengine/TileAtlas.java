@@ -0,0 +1,98 @@
+package tileengine;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Every tile drawn so far, pre-rendered to a TILE_SIZE x TILE_SIZE image, so drawing a tile is a
+ * single image blit instead of a font layout (or an image lookup by path) each time.
+ *
+ * StdDraw only draws images from files, so each tile's image is also written to a temp PNG the first
+ * time it's drawn on screen. StdDraw caches images by file name, so after that it's just a copy.
+ *
+ * Tiles are told apart by identity rather than equals(), since tiles with the same id can look
+ * different (the player tile with a custom avatar image, color variants).
+ */
+public class TileAtlas {
+    public static final int TILE_SIZE = 16;
+    //  Same font TERenderer draws tile characters in
+    private static final Font TILE_FONT = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
+
+    private static final Map<TETile, BufferedImage> IMAGES = new IdentityHashMap<>();
+    private static final Map<TETile, String> FILES = new IdentityHashMap<>();
+
+    //  Renders the tiles ahead of time, so the first frame they're in doesn't have to
+    public static void preload(TETile... tiles) {
+        for (TETile tile : tiles) {
+            file(tile);
+        }
+    }
+
+    //  The tile as a TILE_SIZE x TILE_SIZE image. Don't draw on it, it's shared.
+    public static synchronized BufferedImage image(TETile tile) {
+        BufferedImage image = IMAGES.get(tile);
+        if (image == null) {
+            image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            setUpGraphics(g);
+            tile.rasterize(g, 0, 0, TILE_SIZE);
+            g.dispose();
+            IMAGES.put(tile, image);
+        }
+        return image;
+    }
+
+    //  Path of a PNG of image(tile), or null if it couldn't be written
+    public static synchronized String file(TETile tile) {
+        String path = FILES.get(tile);
+        if (path == null && !FILES.containsKey(tile)) {
+            try {
+                File file = File.createTempFile("tile", ".png");
+                file.deleteOnExit();
+                writeFastPng(image(tile), file);
+                path = file.getPath();
+            } catch (IOException e) {
+                // Leave it null, so draw() falls back to drawing the tile itself.
+            }
+            FILES.put(tile, path);
+        }
+        return path;
+    }
+
+    //  Antialiasing and font to draw tiles into images with, matching what StdDraw uses on screen
+    public static void setUpGraphics(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.setFont(TILE_FONT);
+    }
+
+    /**
+     * Writes the image as a PNG with the fastest compression that still compresses. These files are
+     * only read back by StdDraw, so a few more bytes don't matter but the time to write them does.
+     */
+    public static void writeFastPng(BufferedImage image, File file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(0.9f);
+        // the stream writes over an existing file without truncating it, as ImageIO.write() knows too
+        file.delete();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -2,7 +2,11 @@ package utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 /**
  * A library of simple file operations. Feel free to modify this file.
@@ -23,6 +27,46 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Writes the remaining bytes of a buffer to a file with the given filename, replacing the file.
+     *
+     * @param filename The name of the file to write to.
+     * @param contents The bytes to write, from its position to its limit.
+     * @throws RuntimeException if an IOException occurs during the write operation.
+     */
+    public static void writeFile(String filename, ByteBuffer contents) {
+        //  Overwritten in place and cut to length afterwards rather than truncated on open, since on some
+        //  platforms a file can't be truncated while a mapping of it (from mapFile()) is still around.
+        try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            long length = contents.remaining();
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+            if (channel.size() > length) {
+                channel.truncate(length);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Maps a whole file with the given filename into memory, read-only. The mapping stays valid after
+     * this returns, so the file's bytes are only paged in as the buffer is read.
+     *
+     * @param filename The name of the file to map.
+     * @return The contents of the file.
+     * @throws RuntimeException if an IOException occurs while mapping the file.
+     */
+    public static MappedByteBuffer mapFile(String filename) {
+        try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     /**
      * Reads the contents of a file with the given filename.
      *
@@ -38,6 +82,63 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Appends the remaining bytes of a buffer to a file with the given filename, creating it if needed.
+     *
+     * @param filename The name of the file to append to.
+     * @param contents The bytes to append, from its position to its limit.
+     * @throws RuntimeException if an IOException occurs during the write operation.
+     */
+    public static void appendFile(String filename, ByteBuffer contents) {
+        try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Cuts a file with the given filename down to the given length.
+     *
+     * @param filename The name of the file to truncate.
+     * @param length The length to keep.
+     * @throws RuntimeException if an IOException occurs during the truncation.
+     */
+    public static void truncateFile(String filename, long length) {
+        try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns the length of a file with the given filename, or 0 if it doesn't exist.
+     *
+     * @param filename The name of the file.
+     * @return The length of the file in bytes.
+     */
+    public static long fileSize(String filename) {
+        return new File(filename).length();
+    }
+
+    /**
+     * Creates a directory with the given name, along with any missing parent directories.
+     *
+     * @param dirname The name of the directory to create.
+     * @throws RuntimeException if an IOException occurs while creating it.
+     */
+    public static void makeDirectories(String dirname) {
+        try {
+            Files.createDirectories(new File(dirname).toPath());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     /**
      * Checks if a file with the given filename exists.
      *
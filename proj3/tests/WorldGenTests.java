@@ -1,12 +1,42 @@
 import core.AutograderBuddy;
+import core.BitGrid;
+import core.CellBoard;
+import core.ChunkedWorld;
+import core.CollisionGrid;
+import core.DisjointSet;
+import core.EntityStore;
+import core.FlowField;
+import core.FreeCellIndex;
+import core.ReplayLog;
+import core.ReplayVerifier;
+import core.SaveJournal;
+import core.StructIndex;
 import core.World;
+import core.WorldBatch;
+import core.WorldImageExporter;
 import edu.princeton.cs.algs4.StdDraw;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tileengine.Camera;
 import tileengine.TERenderer;
 import tileengine.TETile;
+import tileengine.TileAtlas;
+import tileengine.Tileset;
 
+import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class WorldGenTests {
     @Test
@@ -21,8 +51,9 @@ public class WorldGenTests {
     }
 
     @Test
-    public void basicInteractivityTest() {
-        TETile[][] tiles = AutograderBuddy.getWorldFromInput("n1231111111111111111111111111546swasdwasddddeeewdww:q");
+    public void basicInteractivityTest(@TempDir Path dir) {
+        TETile[][] tiles = AutograderBuddy.getWorldFromInput("n1231111111111111111111111111546swasdwasddddeeewdww:q",
+                dir.toString());
 
         TERenderer ter = new TERenderer();
         ter.initialize(tiles.length, tiles[0].length);
@@ -31,8 +62,8 @@ public class WorldGenTests {
     }
 
     @Test
-    public void basicSaveTest() {
-        TETile[][] tiles = AutograderBuddy.getWorldFromInput("n123swasdwasddddeeewdww:q");
+    public void basicSaveTest(@TempDir Path dir) {
+        TETile[][] tiles = AutograderBuddy.getWorldFromInput("n123swasdwasddddeeewdww:q", dir.toString());
 
         TERenderer ter = new TERenderer();
         ter.initialize(tiles.length, tiles[0].length);
@@ -41,8 +72,8 @@ public class WorldGenTests {
         StdDraw.clear(Color.cyan);
         StdDraw.show();
         StdDraw.pause(100);
-        tiles = AutograderBuddy.getWorldFromInput("n123swasdwasd:q");
-        tiles = AutograderBuddy.getWorldFromInput("ldddeeewdww");
+        tiles = AutograderBuddy.getWorldFromInput("n123swasdwasd:q", dir.toString());
+        tiles = AutograderBuddy.getWorldFromInput("ldddeeewdww", dir.toString());
         ter.renderFrame(tiles);
         StdDraw.pause(2000);
     }
@@ -87,6 +118,443 @@ public class WorldGenTests {
         StdDraw.pause(10000);
     }
 
+    @Test
+    public void sameSeedSameWorld() {
+        for (String seed : trickySeeds) {
+            String first = TETile.toString(new World(Long.parseLong(seed)).getBoard());
+            String second = TETile.toString(new World(Long.parseLong(seed)).getBoard());
+            assertEquals(first, second, "World differs between two runs of seed " + seed);
+        }
+    }
+
+    @Test
+    public void generationIsAPureFunctionOfTheSeed() {
+        // nothing a world is generated with depends on the worlds generated before it
+        long[] seeds = new Random(61).longs(500).toArray();
+        String[] boards = new String[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+            boards[i] = TETile.toString(new World(seeds[i]).getBoard());
+        }
+        for (int i = seeds.length - 1; i >= 0; i--) {
+            assertEquals(boards[i], TETile.toString(new World(seeds[i]).getBoard()),
+                    "World differs when generated after other seeds, seed " + seeds[i]);
+        }
+    }
+
+    @Test
+    public void batchMatchesOneByOne() {
+        long[] seeds = new Random(114).longs(200).toArray();
+        World[] worlds = new WorldBatch().generate(seeds);
+        for (int i = 0; i < seeds.length; i++) {
+            assertEquals(TETile.toString(new World(seeds[i]).getBoard()), TETile.toString(worlds[i].getBoard()),
+                    "Batch world " + i + " doesn't match seed " + seeds[i]);
+        }
+    }
+
+    @Test
+    public void loadMatchesSave(@TempDir Path dir) {
+        for (String seed : trickySeeds) {
+            String saved = TETile.toString(AutograderBuddy.getWorldFromInput("n" + seed.replace("-", "") + "swasdwasd:q",
+                    dir.toString()));
+            String loaded = TETile.toString(AutograderBuddy.getWorldFromInput("l", dir.toString()));
+            assertEquals(saved, loaded, "Loaded world differs from the one saved with seed " + seed);
+        }
+    }
+
+    @Test
+    public void loadsSavesFromBeforeTheJournal(@TempDir Path dir) throws IOException {
+        // the text save the game wrote before the journal: size, seed and random call count, the board
+        // from its top row down, the room and food counts, then the player and every enemy and food
+        Path legacy = dir.resolve("save.txt");
+        Files.writeString(legacy, String.join("\n", "8", "5", "123\t4",
+                "11111111",
+                "12222221",
+                "12352221",
+                "12222221",
+                "11111111",
+                "1\t0\t0",
+                "PLAYER\t2\t2\t5\t5",
+                "FOOD\t3\t2\t1\t1") + "\n");
+        String board = TETile.toString(new World(legacy.toString()).getBoard());
+        assertEquals(board, TETile.toString(AutograderBuddy.getWorldFromInput("l", dir.toString())),
+                "Loading with no journal doesn't give the old save");
+
+        // saving it starts the journal, which is what's loaded from then on
+        String saved = TETile.toString(AutograderBuddy.getWorldFromInput("lwa:q", dir.toString()));
+        assertTrue(Files.exists(dir.resolve("save.journal")), "Saving an old game didn't start the journal");
+        assertTrue(!saved.equals(board), "The player didn't move");
+        assertEquals(saved, TETile.toString(AutograderBuddy.getWorldFromInput("l", dir.toString())),
+                "Loaded world differs from the old game saved again");
+    }
+
+    @Test
+    public void journalMatchesWorld(@TempDir Path dir) {
+        for (String seed : trickySeeds) {
+            String journal = dir.resolve(seed + ".journal").toString();
+            World world = new World(Long.parseLong(seed));
+            world.enableJournal(journal);
+            world.saveGame();
+            world.saveGame();
+            World loaded = SaveJournal.load(journal, null);
+            assertEquals(TETile.toString(world.getBoard()), TETile.toString(loaded.getBoard()),
+                    "World loaded from the journal differs for seed " + seed);
+        }
+    }
+
+    @Test
+    public void sameInputsSameGame() {
+        Random rdm = new Random(2);
+        char[] inputs = new char[3000];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = rdm.nextInt(3) == 0 ? World.NO_INPUT : "wasd".charAt(rdm.nextInt(4));
+        }
+        for (String seed : trickySeeds) {
+            World first = new World(Long.parseLong(seed)),
+                  second = new World(Long.parseLong(seed));
+            for (char input : inputs) {
+                assertEquals(first.step(input), second.step(input), "Outcome differs at tick " + first.getTick());
+            }
+            assertEquals(TETile.toString(first.getBoard()), TETile.toString(second.getBoard()),
+                    "Same inputs gave different games for seed " + seed);
+        }
+    }
+
+    @Test
+    public void headlessMatchesPacedPlay() {
+        // game time runs on a VirtualClock, so a game stepped flat out plays the same as one stepped in
+        // real time, the way GameLoop does
+        Random rdm = new Random(3);
+        char[] inputs = new char[2000];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = rdm.nextInt(3) == 0 ? World.NO_INPUT : "wasd".charAt(rdm.nextInt(4));
+        }
+        for (String seed : trickySeeds) {
+            World headless = new World(Long.parseLong(seed)),
+                  paced = new World(Long.parseLong(seed));
+            World.Outcome[] outcomes = new World.Outcome[inputs.length];
+            for (int i = 0; i < inputs.length; i++) {
+                outcomes[i] = headless.step(inputs[i]);
+            }
+            for (int i = 0; i < inputs.length; i++) {
+                if (i % 1000 == 0) {
+                    LockSupport.parkNanos(World.TICK_MILLIS * 1_000_000L);
+                }
+                assertEquals(outcomes[i], paced.step(inputs[i]), "Outcome differs at tick " + i);
+            }
+            assertEquals(TETile.toString(headless.getBoard()), TETile.toString(paced.getBoard()),
+                    "Paced game differs from the headless one for seed " + seed);
+        }
+    }
+
+    @Test
+    public void replaysMatchRecordedGames(@TempDir Path dir) throws IOException {
+        Random rdm = new Random(19);
+        String[] files = new String[50];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = dir.resolve(i + ".replay").toString();
+            World world = new World(rdm.nextLong());
+            world.recordReplay(files[i]);
+            for (int tick = 0; tick < 3000 && !world.isGameOver(); tick++) {
+                world.step(rdm.nextInt(3) == 0 ? "wasd".charAt(rdm.nextInt(4)) : World.NO_INPUT);
+            }
+            world.endReplay();
+        }
+        ReplayLog.Result[] results = new ReplayVerifier().verify(files);
+        for (ReplayLog.Result result : results) {
+            assertTrue(result.matched, result.toString());
+        }
+        // a log missing its last bytes doesn't pass, and one with a bad outcome byte diverges
+        byte[] log = Files.readAllBytes(Path.of(files[0]));
+        Path broken = dir.resolve("broken.replay");
+        Files.write(broken, Arrays.copyOf(log, log.length - 1));
+        assertEquals(ReplayLog.Status.CUT_SHORT, ReplayLog.verify(broken.toString()).status);
+        log[log.length - 1] = 0x7F;
+        Files.write(broken, log);
+        assertEquals(ReplayLog.Status.DIVERGED, ReplayLog.verify(broken.toString()).status);
+    }
+
+    @Test
+    public void chunksConnectAndComeBackTheSame(@TempDir Path dir) {
+        int span = 4 * ChunkedWorld.CHUNK_SIZE;
+        ChunkedWorld world = new ChunkedWorld(7, 16, dir.toString());
+        // every floor cell of a 4 x 4 block of chunks is reachable from the player
+        boolean[] reached = new boolean[span * span];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int start = (int) (world.getPlayerY() * span + world.getPlayerX()), reachedNum = 0, floorNum = 0;
+        reached[start] = true;
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int cell = queue.poll(), x = cell % span, y = cell / span;
+            reachedNum++;
+            for (int[] next : new int[][]{{x + 1, y}, {x - 1, y}, {x, y + 1}, {x, y - 1}}) {
+                int index = next[1] * span + next[0];
+                if (next[0] >= 0 && next[1] >= 0 && next[0] < span && next[1] < span && !reached[index]
+                        && world.get(next[0], next[1]) > CellBoard.BOUNDARY) {
+                    reached[index] = true;
+                    queue.add(index);
+                }
+            }
+        }
+        for (int x = 0; x < span; x++) {
+            for (int y = 0; y < span; y++) {
+                floorNum += world.get(x, y) > CellBoard.BOUNDARY ? 1 : 0;
+            }
+        }
+        assertEquals(floorNum, reachedNum, "Some floor of the chunks can't be reached");
+
+        // chunk (0, 0) after being dropped and generated again, with a change that had to be spilled to disk
+        String first = TETile.toString(world.view(0, 0, ChunkedWorld.CHUNK_SIZE, ChunkedWorld.CHUNK_SIZE));
+        byte original = world.get(1, 1);
+        world.set(1, 1, CellBoard.FOOD);
+        for (int i = 1; i <= 40; i++) {
+            world.get(i * 1000L, -i * 1000L);
+        }
+        assertEquals(CellBoard.FOOD, world.get(1, 1), "A change to a chunk was lost when it was evicted");
+        world.set(1, 1, original);
+        assertEquals(first, TETile.toString(world.view(0, 0, ChunkedWorld.CHUNK_SIZE, ChunkedWorld.CHUNK_SIZE)),
+                "Chunk differs after coming back");
+        assertTrue(world.getLoadedChunkNum() <= 16, world.getLoadedChunkNum() + " chunks loaded, the limit is 16");
+    }
+
+    @Test
+    public void cameraOnlyDrawsItsWindow() {
+        int size = 10000;
+        int[] drawn = new int[3];
+        TETile counted = new TETile(Tileset.FLOOR, '.') {
+            @Override
+            public void draw(double x, double y) {
+                drawn[0]++;
+                drawn[1] = Math.max(drawn[1], (int) x);
+                drawn[2] = Math.max(drawn[2], (int) y);
+            }
+        };
+        TETile[][] tiles = new TETile[size][size];
+        for (TETile[] column : tiles) {
+            Arrays.fill(column, counted);
+        }
+        Camera camera = new Camera(80, 45, size, size);
+        assertTrue(camera.follow(size / 2, size / 2), "Camera didn't move to the player");
+        TERenderer ter = new TERenderer();
+        ter.setCamera(camera);
+        ter.drawTiles(tiles);
+        assertEquals(80 * 45, drawn[0], "Drawn tiles should be the camera's window, whatever the world size");
+        assertTrue(drawn[1] < 80 && drawn[2] < 45, "Drew outside the window");
+
+        // small steps don't move the camera, the screen maps back to the world through it
+        assertTrue(!camera.follow(size / 2 + 5, size / 2 - 5), "Camera jumped for a small step");
+        assertEquals(size / 2, camera.toWorldX(40));
+        assertEquals(size / 2, camera.toWorldY(22));
+        assertTrue(camera.follow(size - 1, 0), "Camera didn't follow the player into the corner");
+        assertEquals(size - 80, camera.getX());
+        assertEquals(0, camera.getY());
+        assertEquals(60, new Camera(80, 45, 60, 30).getWidth(), "A world smaller than the window is shown whole");
+    }
+
+    @Test
+    public void exportedImagesShowTheWorld(@TempDir Path dir) throws IOException {
+        long[] seeds = new Random(22).longs(40).toArray();
+        new WorldImageExporter().export(seeds, dir.toString());
+        for (long seed : seeds) {
+            TETile[][] tiles = new World(seed).getBoard();
+            BufferedImage image = ImageIO.read(dir.resolve(seed + ".png").toFile());
+            assertEquals(tiles.length * TileAtlas.TILE_SIZE, image.getWidth(), "Wrong image width for seed " + seed);
+            for (int x = 0; x < tiles.length; x += 7) {
+                for (int y = 0; y < tiles[0].length; y += 5) {
+                    BufferedImage tile = TileAtlas.image(tiles[x][y]);
+                    int pixelY = (tiles[0].length - 1 - y) * TileAtlas.TILE_SIZE;
+                    for (int i = 0; i < TileAtlas.TILE_SIZE; i += 3) {
+                        assertEquals(tile.getRGB(i, i), image.getRGB(x * TileAtlas.TILE_SIZE + i, pixelY + i),
+                                "Tile " + x + ", " + y + " of seed " + seed + " drawn wrong");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stripedMovesMatchOneByOne(@TempDir Path dir) throws IOException {
+        int size = 400,
+            crowdSize = 40_000;
+        World[] worlds = {new World(size, size, 24), new World(size, size, 24)};
+        EntityStore[] crowds = new EntityStore[2];
+        CollisionGrid[] grids = new CollisionGrid[2];
+        FlowField[] fields = new FlowField[2];
+        for (int k = 0; k < 2; k++) {
+            FreeCellIndex floor = new FreeCellIndex(worlds[k].getCellBoard(), CellBoard.INTERIOR);
+            Random random = new Random(61);
+            crowds[k] = new EntityStore(worlds[k], crowdSize);
+            for (int i = 0; i < crowdSize; i++) {
+                crowds[k].spawn(2, i % 10 == 0 ? CellBoard.FOOD : CellBoard.ENEMY, floor, random);
+            }
+            grids[k] = new CollisionGrid(size, size, crowds[k]);
+            fields[k] = new FlowField(worlds[k].getCellBoard(), 30);
+        }
+        crowds[0].setPool(null);
+        crowds[1].setPool(new ForkJoinPool(4));
+
+        for (int tick = 0; tick < 10; tick++) {
+            String[] saves = new String[2];
+            for (int k = 0; k < 2; k++) {
+                if (tick % 2 == 0) {
+                    fields[k].update(crowds[k].getX(0), crowds[k].getY(0));
+                    crowds[k].chaseOrWander(1, crowdSize, fields[k]);
+                } else {
+                    crowds[k].randomMove(0, crowdSize);
+                }
+                worlds[k].exportTextSave(dir.resolve(k + ".txt").toString());
+                saves[k] = Files.readString(dir.resolve(k + ".txt"));
+            }
+            assertEquals(saves[0], saves[1], "Board or random numbers differ after tick " + tick);
+            for (int i = 0; i < crowdSize; i++) {
+                assertEquals(crowds[0].describe(i), crowds[1].describe(i), "Avatar " + i + " differs after tick " + tick);
+            }
+        }
+        int[] here = new int[crowdSize],
+            there = new int[crowdSize];
+        for (int cell = 0; cell < size * size; cell++) {
+            int num = grids[0].sortedOn(cell, here);
+            assertEquals(num, grids[1].sortedOn(cell, there), "Cell " + cell + " holds a different number of avatars");
+            assertTrue(Arrays.equals(here, 0, num, there, 0, num), "Cell " + cell + " holds different avatars");
+        }
+    }
+
+    @Test
+    public void disjointSetListsItsComponents() {
+        int size = 5000;
+        Random random = new Random(25);
+        int[] ns = random.ints(3000, 0, size).toArray(),
+            ms = random.ints(3000, 0, size).toArray();
+        DisjointSet set = new DisjointSet(size);
+        set.connectAll(ns, ms);
+        // the same unions by relabelling: label[i] is the smallest element of i's component
+        int[] label = new int[size];
+        for (int i = 0; i < size; i++) {
+            label[i] = i;
+        }
+        for (int k = 0; k < ns.length; k++) {
+            int from = Math.max(label[ns[k]], label[ms[k]]),
+                to = Math.min(label[ns[k]], label[ms[k]]);
+            for (int i = 0; i < size; i++) {
+                if (label[i] == from) {
+                    label[i] = to;
+                }
+            }
+        }
+
+        int[][] components = set.components();
+        assertEquals(set.getConnenctedComponentNum(), components.length);
+        int previousSmallest = -1;
+        for (int[] component : components) {
+            assertTrue(component[0] > previousSmallest, "Components out of order");
+            previousSmallest = component[0];
+            for (int i = 0; i < component.length; i++) {
+                assertEquals(component[0], label[component[i]], "Element " + component[i] + " in the wrong component");
+                assertEquals(component.length, set.componentSize(component[i]));
+                assertTrue(i == 0 || component[i] > component[i - 1], "Members out of order");
+            }
+        }
+    }
+
+    @Test
+    public void structIndexMatchesPlainScans() {
+        Random random = new Random(4);
+        for (int board = 0; board < 50; board++) {
+            int width = 20 + random.nextInt(200), height = 20 + random.nextInt(100);
+            StructIndex index = new StructIndex(width, height);
+            int[][] rects = new int[5 + random.nextInt(60)][];
+            for (int n = 0; n < rects.length; n++) {
+                // corners on a coarse grid, so plenty of rectangles tie on their gap to a query
+                int fromX = 4 * random.nextInt(width / 4), fromY = 4 * random.nextInt(height / 4);
+                rects[n] = new int[]{fromX, fromY, Math.min(width, fromX + 1 + 4 * random.nextInt(4)),
+                    Math.min(height, fromY + 1 + 4 * random.nextInt(4))};
+                assertEquals(n, index.add(rects[n][0], rects[n][1], rects[n][2], rects[n][3]));
+            }
+            for (int query = 0; query < 200; query++) {
+                int x = random.nextInt(width), y = random.nextInt(height);
+                int covering = -1;
+                for (int n = rects.length - 1; n >= 0; n--) {
+                    if (rects[n][0] <= x && x < rects[n][2] && rects[n][1] <= y && y < rects[n][3]) {
+                        covering = n;
+                    }
+                }
+                assertEquals(covering, index.indexContaining(x, y), "Covering (" + x + ", " + y + ")");
+
+                int[] target = rects[random.nextInt(rects.length)];
+                boolean[] accepted = new boolean[rects.length];
+                for (int n = 0; n < rects.length; n++) {
+                    accepted[n] = random.nextInt(3) > 0;
+                }
+                assertEquals(nearestByScan(rects, accepted, target[0], target[2], 0, width),
+                        index.nearestByGapX(target[0], target[2], n -> accepted[n]), "Nearest by x on board " + board);
+                assertEquals(nearestByScan(rects, accepted, target[1], target[3], 1, width),
+                        index.nearestByGapY(target[1], target[3], n -> accepted[n]), "Nearest by y on board " + board);
+            }
+        }
+    }
+
+    // what fixHallway() did before StructIndex: distX/distY of every room, the first smallest under width wins
+    private static int nearestByScan(int[][] rects, boolean[] accepted, int from, int to, int axis, int width) {
+        int nearest = -1, minDist = width;
+        for (int n = 0; n < rects.length; n++) {
+            int rectFrom = rects[n][axis], rectTo = rects[n][axis + 2],
+                dist = Math.max(0, Math.max(to, rectTo) - Math.min(from, rectFrom) - (to - from + rectTo - rectFrom));
+            if (accepted[n] && dist < minDist) {
+                nearest = n;
+                minDist = dist;
+            }
+        }
+        return nearest;
+    }
+
+    @Test
+    public void knownSeedsKeepTheirBoards() {
+        // hashes of the boards the tricky seeds generate. The bucket indexes left every board as it was, these
+        // last changed when avatars started spawning from FreeCellIndex, which places them on other cells;
+        // a change to generation that means to keep every world the same keeps these
+        int[] hashes = new int[]{-1062330589, 452891744, 1462063424, 1240819115, 473847445, -184695904, 902419007,
+            -399180134, -771361117};
+        for (int i = 0; i < trickySeeds.length; i++) {
+            assertEquals(hashes[i], TETile.toString(new World(Long.parseLong(trickySeeds[i])).getBoard()).hashCode(),
+                    "Board changed for seed " + trickySeeds[i]);
+        }
+    }
+
+    @Test
+    public void bitGridRangesAtWordBoundaries() {
+        int width = 200, height = 3;
+        // around every word boundary of a row, and both ends of it
+        int[] xs = new int[]{0, 1, 62, 63, 64, 65, 127, 128, 129, 191, 192, 199, 200};
+        for (int fromX : xs) {
+            for (int toX : xs) {
+                BitGrid bits = new BitGrid(width, height);
+                bits.fill(fromX, 1, toX, 2);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        assertEquals(y == 1 && fromX <= x && x < toX, bits.get(x, y),
+                                "fill(" + fromX + ", " + toX + ") at (" + x + ", " + y + ")");
+                    }
+                }
+                assertEquals(fromX < toX, bits.anySet(fromX, 0, toX, height), "anySet(" + fromX + ", " + toX + ")");
+                assertTrue(bits.allSet(fromX, 1, toX, 2), "allSet(" + fromX + ", " + toX + ")");
+                assertEquals(fromX >= toX, bits.allSet(fromX, 0, toX, 2), "allSet(" + fromX + ", " + toX + ") over an empty row");
+
+                // a single bit just inside or just outside the range
+                for (int x : xs) {
+                    if (x == width) {
+                        continue;
+                    }
+                    BitGrid one = new BitGrid(width, height);
+                    one.set(x, 2);
+                    boolean inside = fromX <= x && x < toX;
+                    assertEquals(inside, one.anySet(fromX, 2, toX, 3), "anySet(" + fromX + ", " + toX + ") with " + x + " set");
+                    one.fill(0, 0, width, 2);
+                    one.clear(x, 1);
+                    assertEquals(!inside, one.allSet(fromX, 0, toX, 2), "allSet(" + fromX + ", " + toX + ") with " + x + " clear");
+                }
+            }
+        }
+    }
+
     @Test
     public void shit() {
         World world = new World(Long.parseLong("-1668523966227595867"));